@@ -0,0 +1,101 @@
+package net.momirealms.craftengine.bukkit.block;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.momirealms.craftengine.bukkit.util.ItemUtils;
+import net.momirealms.craftengine.core.item.Item;
+import net.momirealms.craftengine.core.sound.SoundData;
+import net.momirealms.craftengine.core.world.BlockPos;
+import net.momirealms.craftengine.core.world.Vec3d;
+import net.momirealms.craftengine.core.world.World;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the drops and break sounds of many blocks broken at once, by an explosion or a piston.
+ * <p>
+ * Blocks are grouped into cubes of {@code mergeRadius} blocks. Identical drops within a cube become a single
+ * stack spawned at the first block that dropped it, and each break sound is played once per cube, up to
+ * {@code maxSounds} sounds in total.
+ */
+final class BlockDropAggregator {
+    private final World world;
+    private final int mergeRadius;
+    private final int maxSounds;
+    private final Long2ObjectOpenHashMap<List<Drop>> dropsByCell = new Long2ObjectOpenHashMap<>();
+    private final List<Drop> drops = new ArrayList<>();
+    private final Map<SoundData, LongSet> playedSounds = new HashMap<>();
+    private int soundCount;
+
+    BlockDropAggregator(World world, int mergeRadius, int maxSounds) {
+        this.world = world;
+        this.mergeRadius = mergeRadius;
+        this.maxSounds = maxSounds;
+    }
+
+    void addDrop(BlockPos pos, Vec3d location, Item<Object> item) {
+        if (this.mergeRadius <= 0) {
+            this.world.dropItemNaturally(location, item);
+            return;
+        }
+        ItemStack itemStack = (ItemStack) item.load();
+        if (ItemUtils.isEmpty(itemStack)) return;
+        List<Drop> drops = this.dropsByCell.computeIfAbsent(cellOf(pos), k -> new ArrayList<>(4));
+        for (Drop drop : drops) {
+            if (drop.itemStack.isSimilar(itemStack)) {
+                drop.count += itemStack.getAmount();
+                return;
+            }
+        }
+        Drop drop = new Drop(location, item, itemStack);
+        drops.add(drop);
+        this.drops.add(drop);
+    }
+
+    void playSound(BlockPos pos, Vec3d location, SoundData sound) {
+        if (this.soundCount >= this.maxSounds) return;
+        if (this.mergeRadius > 0 && !this.playedSounds.computeIfAbsent(sound, k -> new LongOpenHashSet()).add(cellOf(pos))) return;
+        this.soundCount++;
+        this.world.playBlockSound(location, sound);
+    }
+
+    /**
+     * Spawns the merged drops, split into stacks no larger than their max stack size.
+     */
+    void flush() {
+        for (Drop drop : this.drops) {
+            int maxStackSize = Math.max(1, drop.item.maxStackSize());
+            int remaining = drop.count;
+            while (remaining > 0) {
+                int count = Math.min(maxStackSize, remaining);
+                this.world.dropItemNaturally(drop.location, drop.item.copyWithCount(count));
+                remaining -= count;
+            }
+        }
+        this.drops.clear();
+        this.dropsByCell.clear();
+    }
+
+    private long cellOf(BlockPos pos) {
+        return BlockPos.asLong(Math.floorDiv(pos.x(), this.mergeRadius), Math.floorDiv(pos.y(), this.mergeRadius), Math.floorDiv(pos.z(), this.mergeRadius));
+    }
+
+    private static class Drop {
+        private final Vec3d location;
+        private final Item<Object> item;
+        private final ItemStack itemStack;
+        private int count;
+
+        private Drop(Vec3d location, Item<Object> item, ItemStack itemStack) {
+            this.location = location;
+            this.item = item;
+            this.itemStack = itemStack;
+            this.count = itemStack.getAmount();
+        }
+    }
+}
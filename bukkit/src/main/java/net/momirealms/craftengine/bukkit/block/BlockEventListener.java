@@ -1,7 +1,9 @@
 package net.momirealms.craftengine.bukkit.block;
 
 import io.papermc.paper.event.block.BlockBreakBlockEvent;
+import io.papermc.paper.event.server.ServerResourcesReloadedEvent;
 import net.momirealms.craftengine.bukkit.api.event.CustomBlockBreakEvent;
+import net.momirealms.craftengine.bukkit.block.behavior.LeavesBlockBehavior;
 import net.momirealms.craftengine.bukkit.plugin.BukkitCraftEngine;
 import net.momirealms.craftengine.bukkit.plugin.user.BukkitServerPlayer;
 import net.momirealms.craftengine.bukkit.util.*;
@@ -18,6 +20,7 @@ import net.momirealms.craftengine.core.plugin.config.ConfigManager;
 import net.momirealms.craftengine.core.util.Key;
 import net.momirealms.craftengine.core.util.context.ContextHolder;
 import net.momirealms.craftengine.core.world.BlockPos;
+import net.momirealms.craftengine.core.world.CEWorld;
 import net.momirealms.craftengine.core.world.Vec3d;
 import org.bukkit.*;
 import org.bukkit.block.Block;
@@ -32,6 +35,7 @@ import org.bukkit.event.block.*;
 import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.world.GenericGameEvent;
 import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 import java.util.Optional;
@@ -48,6 +52,12 @@ public class BlockEventListener implements Listener {
         this.enableNoteBlockCheck = enableNoteBlockCheck;
     }
 
+    // block tags are reloaded along with data packs
+    @EventHandler
+    public void onResourcesReloaded(ServerResourcesReloadedEvent event) {
+        LeavesBlockBehavior.clearDistanceCache();
+    }
+
     @EventHandler(ignoreCancelled = true)
     public void onPlaceBlock(BlockPlaceEvent event) {
         Player player = event.getPlayer();
@@ -253,23 +263,30 @@ public class BlockEventListener implements Listener {
     private void handlePistonEvent(BlockFace face, List<Block> blocksList, Block piston) {
         int blocks = blocksList.size();
         net.momirealms.craftengine.core.world.World world = new BukkitWorld(piston.getWorld());
+        CEWorld ceWorld = this.plugin.worldManager().getWorld(piston.getWorld().getUID());
+        BlockDropAggregator aggregator = null;
         for (int i = blocks - 1; i >= 0; --i) {
-            Location oldLocation = blocksList.get(i).getLocation();
-            BlockPos oldPos = new BlockPos(oldLocation.getBlockX(), oldLocation.getBlockY(), oldLocation.getBlockZ());
             Block block = blocksList.get(i);
-            ImmutableBlockState blockState = manager.getImmutableBlockState(BlockStateUtils.blockDataToId(block.getBlockData()));
-            if (blockState != null && blockState.pushReaction() == PushReaction.DESTROY) {
+            BlockPos oldPos = new BlockPos(block.getX(), block.getY(), block.getZ());
+            ImmutableBlockState blockState = getCustomBlockState(ceWorld, block, oldPos);
+            if (blockState != null && !blockState.isEmpty() && blockState.pushReaction() == PushReaction.DESTROY) {
+                if (aggregator == null) {
+                    aggregator = new BlockDropAggregator(world, ConfigManager.massBreakMergeRadius(), ConfigManager.massBreakMaxSounds());
+                }
                 // break actions
                 ContextHolder.Builder builder = ContextHolder.builder();
                 Vec3d vec3d = Vec3d.atCenterOf(oldPos);
                 builder.withParameter(LootParameters.LOCATION, vec3d);
                 builder.withParameter(LootParameters.WORLD, world);
                 for (Item<Object> item : blockState.getDrops(builder, world)) {
-                    world.dropItemNaturally(vec3d, item);
+                    aggregator.addDrop(oldPos, vec3d, item);
                 }
-                world.playBlockSound(vec3d, blockState.sounds().breakSound());
+                aggregator.playSound(oldPos, vec3d, blockState.sounds().breakSound());
             }
         }
+        if (aggregator != null) {
+            aggregator.flush();
+        }
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
@@ -283,12 +300,16 @@ public class BlockEventListener implements Listener {
     }
 
     private void handleExplodeEvent(List<org.bukkit.block.Block> blocks, net.momirealms.craftengine.core.world.World world, float yield) {
+        CEWorld ceWorld = this.plugin.worldManager().getWorld(world.uuid());
+        BlockDropAggregator aggregator = null;
         for (int i = blocks.size() - 1; i >= 0; i--) {
             Block block = blocks.get(i);
-            Location location = block.getLocation();
-            BlockPos blockPos = new BlockPos(location.getBlockX(), location.getBlockY(), location.getBlockZ());
-            ImmutableBlockState state = manager.getImmutableBlockState(BlockStateUtils.blockDataToId(block.getBlockData()));
+            BlockPos blockPos = new BlockPos(block.getX(), block.getY(), block.getZ());
+            ImmutableBlockState state = getCustomBlockState(ceWorld, block, blockPos);
             if (state != null && !state.isEmpty()) {
+                if (aggregator == null) {
+                    aggregator = new BlockDropAggregator(world, ConfigManager.massBreakMergeRadius(), ConfigManager.massBreakMaxSounds());
+                }
                 ContextHolder.Builder builder = ContextHolder.builder();
                 Vec3d vec3d = Vec3d.atCenterOf(blockPos);
                 builder.withParameter(LootParameters.LOCATION, vec3d);
@@ -297,11 +318,26 @@ public class BlockEventListener implements Listener {
                     builder.withParameter(LootParameters.EXPLOSION_RADIUS, 1.0f / yield);
                 }
                 for (Item<Object> item : state.getDrops(builder, world)) {
-                    world.dropItemNaturally(vec3d, item);
+                    aggregator.addDrop(blockPos, vec3d, item);
                 }
-                world.playBlockSound(vec3d, state.sounds().breakSound());
+                aggregator.playSound(blockPos, vec3d, state.sounds().breakSound());
+            }
+        }
+        if (aggregator != null) {
+            aggregator.flush();
+        }
+    }
+
+    // the custom block state is stored in the CraftEngine world, which avoids converting the block data of every block
+    @Nullable
+    private ImmutableBlockState getCustomBlockState(@Nullable CEWorld ceWorld, Block block, BlockPos pos) {
+        if (ceWorld != null) {
+            ImmutableBlockState state = ceWorld.getBlockStateAtIfLoaded(pos);
+            if (state != null) {
+                return state;
             }
         }
+        return this.manager.getImmutableBlockState(BlockStateUtils.blockDataToId(block.getBlockData()));
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
@@ -7,6 +7,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import dev.dejvokep.boostedyaml.YamlDocument;
+import net.momirealms.craftengine.bukkit.block.behavior.LeavesBlockBehavior;
 import net.momirealms.craftengine.bukkit.compatibility.worldedit.WorldEditBlockRegister;
 import net.momirealms.craftengine.bukkit.plugin.BukkitCraftEngine;
 import net.momirealms.craftengine.bukkit.plugin.injector.BukkitInjector;
@@ -176,6 +177,7 @@ public class BukkitBlockManager extends AbstractBlockManager {
         initSuggestions();
         resetPacketConsumers();
         clearCache();
+        LeavesBlockBehavior.clearDistanceCache();
     }
 
     private void clearCache() {
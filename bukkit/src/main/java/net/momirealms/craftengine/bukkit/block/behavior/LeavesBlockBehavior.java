@@ -6,6 +6,7 @@ import net.momirealms.craftengine.bukkit.util.BlockStateUtils;
 import net.momirealms.craftengine.bukkit.util.BlockTags;
 import net.momirealms.craftengine.bukkit.util.LocationUtils;
 import net.momirealms.craftengine.bukkit.util.Reflections;
+import net.momirealms.craftengine.bukkit.util.RegistryUtils;
 import net.momirealms.craftengine.bukkit.world.BukkitWorld;
 import net.momirealms.craftengine.core.block.CustomBlock;
 import net.momirealms.craftengine.core.block.ImmutableBlockState;
@@ -27,12 +28,18 @@ import org.bukkit.World;
 import org.bukkit.event.block.LeavesDecayEvent;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.Callable;
 
 public class LeavesBlockBehavior extends WaterLoggedBlockBehavior {
     public static final Factory FACTORY = new Factory();
     private static final Object LOG_TAG = BlockTags.getOrCreate(Key.of("minecraft", "logs"));
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final byte UNKNOWN = Byte.MIN_VALUE;
+    private static final byte NOT_LEAVES = -1;
+    // the distance each block state gives to adjacent leaves, indexed by state id and filled as states are met
+    private static volatile byte[] distanceCache;
     private final int maxDistance;
     private final Property<Integer> distanceProperty;
     private final Property<Boolean> persistentProperty;
@@ -77,7 +84,7 @@ public class LeavesBlockBehavior extends WaterLoggedBlockBehavior {
         }
         ImmutableBlockState thisState = BukkitBlockManager.instance().getImmutableBlockState(BlockStateUtils.blockStateToId(blockState));
         if (thisState != null && thisState.behavior() instanceof LeavesBlockBehavior behavior) {
-            int distance = behavior.getDistanceAt(neighborState) + 1;
+            int distance = behavior.getDistanceAt(BlockStateUtils.blockStateToId(neighborState)) + 1;
             if (distance != 1 || behavior.getDistance(thisState) != distance) {
                 Reflections.method$LevelAccessor$scheduleTick.invoke(world, blockPos, thisBlock, 1);
             }
@@ -138,13 +145,13 @@ public class LeavesBlockBehavior extends WaterLoggedBlockBehavior {
 
     private ImmutableBlockState updateDistance(ImmutableBlockState state, Object world, Object blockPos) throws ReflectiveOperationException {
         int i = this.maxDistance;
-        Object mutablePos = Reflections.constructor$MutableBlockPos.newInstance();
-        int j = Direction.values().length;
-        for (int k = 0; k < j; ++k) {
-            Object direction = Reflections.instance$Directions[k];
-            Reflections.method$MutableBlockPos$setWithOffset.invoke(mutablePos, blockPos, direction);
-            Object blockState = FastNMS.INSTANCE.method$BlockGetter$getBlockState(world, mutablePos);
-            i = Math.min(i, getDistanceAt(blockState) + 1);
+        int x = FastNMS.INSTANCE.field$Vec3i$x(blockPos);
+        int y = FastNMS.INSTANCE.field$Vec3i$y(blockPos);
+        int z = FastNMS.INSTANCE.field$Vec3i$z(blockPos);
+        for (Direction direction : DIRECTIONS) {
+            Object neighborPos = LocationUtils.toBlockPos(x + direction.stepX(), y + direction.stepY(), z + direction.stepZ());
+            Object blockState = FastNMS.INSTANCE.method$BlockGetter$getBlockState(world, neighborPos);
+            i = Math.min(i, getDistanceAt(BlockStateUtils.blockStateToId(blockState)) + 1);
             if (i == 1) {
                 break;
             }
@@ -152,19 +159,49 @@ public class LeavesBlockBehavior extends WaterLoggedBlockBehavior {
         return state.with(this.distanceProperty, i);
     }
 
-    private int getDistanceAt(Object blockState) throws ReflectiveOperationException {
+    private int getDistanceAt(int stateId) throws ReflectiveOperationException {
+        int distance = getCachedDistance(stateId);
+        return distance == NOT_LEAVES ? this.maxDistance : distance;
+    }
+
+    /**
+     * Tags and custom blocks may change on reload, so the cached distances have to be thrown away.
+     */
+    public static void clearDistanceCache() {
+        distanceCache = null;
+    }
+
+    private static byte getCachedDistance(int stateId) throws ReflectiveOperationException {
+        byte[] cache = distanceCache;
+        if (cache == null) {
+            cache = new byte[RegistryUtils.currentBlockRegistrySize()];
+            Arrays.fill(cache, UNKNOWN);
+            distanceCache = cache;
+        }
+        if (stateId < 0 || stateId >= cache.length) {
+            return computeDistance(stateId);
+        }
+        byte distance = cache[stateId];
+        if (distance == UNKNOWN) {
+            distance = computeDistance(stateId);
+            cache[stateId] = distance;
+        }
+        return distance;
+    }
+
+    private static byte computeDistance(int stateId) throws ReflectiveOperationException {
+        Object blockState = BlockStateUtils.idToBlockState(stateId);
         boolean isLog = (boolean) Reflections.method$BlockStateBase$hasTag.invoke(blockState, LOG_TAG);
         if (isLog) return 0;
-        int id = BlockStateUtils.blockStateToId(blockState);
-        if (BlockStateUtils.isVanillaBlock(id)) {
+        if (BlockStateUtils.isVanillaBlock(stateId)) {
             Object distanceProperty = Reflections.field$LeavesBlock$DISTANCE.get(null);
             boolean hasDistanceProperty = (boolean) Reflections.method$StateHolder$hasProperty.invoke(blockState, distanceProperty);
-            if (!hasDistanceProperty) return this.maxDistance;
-            return (int) Reflections.method$StateHolder$getValue.invoke(blockState, distanceProperty);
+            if (!hasDistanceProperty) return NOT_LEAVES;
+            return (byte) (int) Reflections.method$StateHolder$getValue.invoke(blockState, distanceProperty);
         } else {
-            ImmutableBlockState anotherBlockState = BukkitBlockManager.instance().getImmutableBlockStateUnsafe(id);
-            if (!(anotherBlockState.behavior() instanceof LeavesBlockBehavior otherBehavior)) return this.maxDistance;
-            return otherBehavior.getDistance(anotherBlockState);
+            ImmutableBlockState anotherBlockState = BukkitBlockManager.instance().getImmutableBlockStateUnsafe(stateId);
+            if (!(anotherBlockState.behavior() instanceof LeavesBlockBehavior otherBehavior)) return NOT_LEAVES;
+            return (byte) Math.min(otherBehavior.getDistance(anotherBlockState), Byte.MAX_VALUE);
         }
     }
 
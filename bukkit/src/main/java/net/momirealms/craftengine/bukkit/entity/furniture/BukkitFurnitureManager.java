@@ -268,7 +268,7 @@ public class BukkitFurnitureManager implements FurnitureManager {
             if (previous != null) return;
             LoadedFurniture furniture = addNewFurniture(display, customFurniture, getAnchorType(entity, customFurniture));
             for (Player player : display.getTrackedPlayers()) {
-                this.plugin.adapt(player).furnitureView().computeIfAbsent(furniture.baseEntityId(), k -> new ArrayList<>()).addAll(furniture.subEntityIds());
+                this.plugin.adapt(player).furnitureView().put(furniture.baseEntityId(), furniture.subEntityIds());
                 this.plugin.networkManager().sendPacket(player, furniture.spawnPacket());
             }
         }
@@ -41,9 +41,9 @@ public class LoadedFurniture {
     private final WeakReference<Entity> baseEntity;
     private final int baseEntityId;
     // includes elements + interactions
-    private final List<Integer> subEntityIds;
+    private final int[] subEntityIds;
     // interactions
-    private final List<Integer> interactionEntityIds;
+    private final int[] interactionEntityIds;
     // seats
     private final Set<Vector3f> occupiedSeats = Collections.synchronizedSet(new HashSet<>());
     private final Vector<Entity> seats = new Vector<>();
@@ -59,19 +59,20 @@ public class LoadedFurniture {
         this.furniture = furniture;
         this.hitBoxes = new HashMap<>();
         this.elements = new HashMap<>();
-        List<Integer> entityIds = new ArrayList<>();
-        List<Integer> interactionEntityIds = new ArrayList<>();
         CustomFurniture.Placement placement = furniture.getPlacement(anchorType);
+        int[] entityIds = new int[placement.elements().length + placement.hitbox().length];
+        int[] interactionEntityIds = new int[placement.hitbox().length];
+        int index = 0;
         for (FurnitureElement element : placement.elements()) {
             int entityId = Reflections.instance$Entity$ENTITY_COUNTER.incrementAndGet();
-            entityIds.add(entityId);
+            entityIds[index++] = entityId;
             this.elements.put(entityId, element);
         }
-        for (HitBox hitBox : placement.hitbox()) {
+        for (int i = 0; i < interactionEntityIds.length; i++) {
             int entityId = Reflections.instance$Entity$ENTITY_COUNTER.incrementAndGet();
-            entityIds.add(entityId);
-            interactionEntityIds.add(entityId);
-            this.hitBoxes.put(entityId, hitBox);
+            entityIds[index++] = entityId;
+            interactionEntityIds[i] = entityId;
+            this.hitBoxes.put(entityId, placement.hitbox()[i]);
         }
         this.subEntityIds = entityIds;
         this.interactionEntityIds = interactionEntityIds;
@@ -223,11 +224,11 @@ public class LoadedFurniture {
         return baseEntityId;
     }
 
-    public List<Integer> interactionEntityIds() {
+    public int[] interactionEntityIds() {
         return interactionEntityIds;
     }
 
-    public List<Integer> subEntityIds() {
+    public int[] subEntityIds() {
         return this.subEntityIds;
     }
 
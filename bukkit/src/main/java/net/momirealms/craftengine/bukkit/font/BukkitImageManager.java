@@ -7,7 +7,6 @@ import net.momirealms.craftengine.bukkit.util.Reflections;
 import net.momirealms.craftengine.core.font.AbstractImageManager;
 import net.momirealms.craftengine.core.font.ImageManager;
 import net.momirealms.craftengine.core.plugin.config.ConfigManager;
-import net.momirealms.craftengine.core.util.CharacterUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -94,22 +93,9 @@ public class BukkitImageManager extends AbstractImageManager implements Listener
     }
 
     private void runIfContainsIllegalCharacter(String string, Consumer<String> callback) {
-        //noinspection DuplicatedCode
-        char[] chars = string.toCharArray();
-        int[] codepoints = CharacterUtils.charsToCodePoints(chars);
-        int[] newCodepoints = new int[codepoints.length];
-        boolean hasIllegal = false;
-        for (int i = 0; i < codepoints.length; i++) {
-            int codepoint = codepoints[i];
-            if (!isIllegalCharacter(codepoint)) {
-                newCodepoints[i] = codepoint;
-            } else {
-                newCodepoints[i] = '*';
-                hasIllegal = true;
-            }
-        }
-        if (hasIllegal) {
-            callback.accept(new String(newCodepoints, 0, newCodepoints.length));
+        String result = this.replaceIllegalCharacters(string);
+        if (result != string) {
+            callback.accept(result);
         }
     }
 }
@@ -22,13 +22,22 @@ public class BukkitCustomItem implements CustomItem<ItemStack> {
     private final Key materialKey;
     private final Material material;
     private final List<ItemModifier<ItemStack>> modifiers;
+    // modifiers that are not part of the prototype and have to be applied on every build
+    private final List<ItemModifier<ItemStack>> dynamicModifiers;
     private final List<ItemBehavior> behavior;
     private final ItemSettings settings;
+    private volatile ItemStack prototype;
 
     public BukkitCustomItem(Key id, Key materialKey, Material material, List<ItemModifier<ItemStack>> modifiers, List<ItemBehavior> behavior, ItemSettings settings) {
         this.id = id;
         this.material = material;
         this.modifiers = modifiers;
+        // the prototype can only cover the modifiers before the first context-sensitive one, as later ones may override it
+        int prototypeModifiers = 0;
+        while (prototypeModifiers < modifiers.size() && !modifiers.get(prototypeModifiers).isContextSensitive()) {
+            prototypeModifiers++;
+        }
+        this.dynamicModifiers = modifiers.subList(prototypeModifiers, modifiers.size());
         this.behavior = behavior;
         this.materialKey = materialKey;
         this.settings = settings;
@@ -51,18 +60,33 @@ public class BukkitCustomItem implements CustomItem<ItemStack> {
 
     @Override
     public ItemStack buildItemStack(ItemBuildContext context, int count) {
-        ItemStack item = new ItemStack(material);
-        if (this.modifiers.isEmpty()) {
+        ItemStack item = this.prototype().clone();
+        if (this.dynamicModifiers.isEmpty()) {
+            item.setAmount(count);
             return item;
         }
         Item<ItemStack> wrapped = BukkitCraftEngine.instance().itemManager().wrap(item);
         wrapped.count(count);
-        for (ItemModifier<ItemStack> modifier : this.modifiers) {
+        for (ItemModifier<ItemStack> modifier : this.dynamicModifiers) {
             modifier.apply(wrapped, context);
         }
         return wrapped.load();
     }
 
+    private ItemStack prototype() {
+        ItemStack prototype = this.prototype;
+        if (prototype == null) {
+            Item<ItemStack> wrapped = BukkitCraftEngine.instance().itemManager().wrap(new ItemStack(this.material));
+            int prototypeModifiers = this.modifiers.size() - this.dynamicModifiers.size();
+            for (int i = 0; i < prototypeModifiers; i++) {
+                this.modifiers.get(i).apply(wrapped, ItemBuildContext.EMPTY);
+            }
+            prototype = wrapped.load();
+            this.prototype = prototype;
+        }
+        return prototype;
+    }
+
     @Override
     public ItemSettings settings() {
         return settings;
@@ -70,9 +94,9 @@ public class BukkitCustomItem implements CustomItem<ItemStack> {
 
     @Override
     public Item<ItemStack> buildItem(ItemBuildContext context) {
-        ItemStack item = new ItemStack(material);
+        ItemStack item = this.prototype().clone();
         Item<ItemStack> wrapped = BukkitCraftEngine.instance().itemManager().wrap(item);
-        for (ItemModifier<ItemStack> modifier : modifiers()) {
+        for (ItemModifier<ItemStack> modifier : this.dynamicModifiers) {
             modifier.apply(wrapped, context);
         }
         wrapped.load();
@@ -222,6 +222,7 @@ public class BukkitRecipeManager implements RecipeManager<ItemStack> {
     private final RecipeEventListener recipeEventListener;
     private final CrafterEventListener crafterEventListener;
     private final Map<Key, List<Recipe<ItemStack>>> byType;
+    private final Map<Key, RecipeIndex<ItemStack>> indexByType;
     private final Map<Key, Recipe<ItemStack>> byId;
     private final Map<Key, List<Recipe<ItemStack>>> byResult;
     private final Map<Key, List<Recipe<ItemStack>>> byIngredient;
@@ -237,6 +238,7 @@ public class BukkitRecipeManager implements RecipeManager<ItemStack> {
         instance = this;
         this.plugin = plugin;
         this.byType = new HashMap<>();
+        this.indexByType = new HashMap<>();
         this.byId = new HashMap<>();
         this.byIngredient = new HashMap<>();
         this.byResult = new HashMap<>();
@@ -302,6 +304,7 @@ public class BukkitRecipeManager implements RecipeManager<ItemStack> {
     @Override
     public void unload() {
         this.byType.clear();
+        this.indexByType.clear();
         this.byId.clear();
         this.byResult.clear();
         this.byIngredient.clear();
@@ -381,6 +384,7 @@ public class BukkitRecipeManager implements RecipeManager<ItemStack> {
 
     private void addInternalRecipe(Key id, Recipe<ItemStack> recipe) {
         this.byType.computeIfAbsent(recipe.type(), k -> new ArrayList<>()).add(recipe);
+        this.indexByType.computeIfAbsent(recipe.type(), k -> new RecipeIndex<>()).add(recipe);
         this.byId.put(id, recipe);
         this.byResult.computeIfAbsent(recipe.result().item().id(), k -> new ArrayList<>()).add(recipe);
         HashSet<Key> usedKeys = new HashSet<>();
@@ -397,14 +401,9 @@ public class BukkitRecipeManager implements RecipeManager<ItemStack> {
     @Nullable
     @Override
     public Recipe<ItemStack> getRecipe(Key type, RecipeInput input) {
-        List<Recipe<ItemStack>> recipes = this.byType.get(type);
-        if (recipes == null) return null;
-        for (Recipe<ItemStack> recipe : recipes) {
-            if (recipe.matches(input)) {
-                return recipe;
-            }
-        }
-        return null;
+        RecipeIndex<ItemStack> index = this.indexByType.get(type);
+        if (index == null) return null;
+        return index.find(input);
     }
 
     @Nullable
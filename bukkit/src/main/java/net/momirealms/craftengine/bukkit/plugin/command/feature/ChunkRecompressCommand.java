@@ -0,0 +1,88 @@
+package net.momirealms.craftengine.bukkit.plugin.command.feature;
+
+import net.kyori.adventure.text.Component;
+import net.momirealms.craftengine.bukkit.plugin.command.BukkitCommandFeature;
+import net.momirealms.craftengine.core.plugin.CraftEngine;
+import net.momirealms.craftengine.core.plugin.command.CraftEngineCommandManager;
+import net.momirealms.craftengine.core.plugin.command.sender.Sender;
+import net.momirealms.craftengine.core.world.CEWorld;
+import net.momirealms.craftengine.core.world.chunk.storage.CompressionMethod;
+import net.momirealms.craftengine.core.world.chunk.storage.DefaultRegionFileStorage;
+import net.momirealms.craftengine.core.world.chunk.storage.ZstdDictionaries;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.incendo.cloud.Command;
+import org.incendo.cloud.bukkit.parser.WorldParser;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public class ChunkRecompressCommand extends BukkitCommandFeature<CommandSender> {
+    private static final int DICTIONARY_SIZE = 64 * 1024;
+    private static final int MAX_SAMPLE_BYTES = 32 * 1024 * 1024;
+    private volatile boolean running;
+
+    public ChunkRecompressCommand(CraftEngineCommandManager<CommandSender> commandManager, CraftEngine plugin) {
+        super(commandManager, plugin);
+    }
+
+    @Override
+    public Command.Builder<? extends CommandSender> assembleCommand(org.incendo.cloud.CommandManager<CommandSender> manager, Command.Builder<CommandSender> builder) {
+        return builder
+                .required("world", WorldParser.worldParser())
+                .flag(manager.flagBuilder("train-dictionary").build())
+                .handler(context -> {
+                    Sender sender = plugin().senderFactory().wrap(context.sender());
+                    World world = context.get("world");
+                    CEWorld ceWorld = plugin().worldManager().getWorld(world.getUID());
+                    if (ceWorld == null || !(ceWorld.worldDataStorage() instanceof DefaultRegionFileStorage storage)) {
+                        sender.sendMessage(Component.text("World " + world.getName() + " does not use region files"));
+                        return;
+                    }
+                    boolean trainDictionary = context.flags().hasFlag("train-dictionary");
+                    if (trainDictionary && (storage.compression() != CompressionMethod.ZSTD || storage.dictionaries() == null)) {
+                        sender.sendMessage(Component.text("Dictionaries are only available for the zstd compression method"));
+                        return;
+                    }
+                    if (this.running) {
+                        sender.sendMessage(Component.text("Another recompression is still running"));
+                        return;
+                    }
+                    this.running = true;
+                    plugin().scheduler().executeAsync(() -> {
+                        try {
+                            // make sure queued chunk saves are not lost or reordered
+                            ceWorld.flushPendingWrites();
+                            long time1 = System.currentTimeMillis();
+                            if (trainDictionary) {
+                                List<byte[]> samples = storage.sampleChunkData(MAX_SAMPLE_BYTES);
+                                if (samples.isEmpty()) {
+                                    sender.sendMessage(Component.text("No chunk data to train the dictionary with"));
+                                    return;
+                                }
+                                storage.dictionaries().add(ZstdDictionaries.train(samples, DICTIONARY_SIZE));
+                                sender.sendMessage(Component.text("Trained a new dictionary with " + samples.size() + " chunks"));
+                            }
+                            List<Path> regionFiles = storage.listRegionFiles();
+                            int chunks = 0;
+                            for (Path regionFile : regionFiles) {
+                                chunks += storage.recompressRegionFile(regionFile);
+                            }
+                            storage.flush();
+                            long time2 = System.currentTimeMillis();
+                            sender.sendMessage(Component.text("Recompressed " + chunks + " chunks in " + regionFiles.size() + " region files with " + storage.compression().getName() + " in " + (time2 - time1) + "ms"));
+                        } catch (Exception e) {
+                            sender.sendMessage(Component.text("Failed to recompress the region files of " + world.getName()));
+                            plugin().logger().warn("Failed to recompress the region files of " + world.getName(), e);
+                        } finally {
+                            this.running = false;
+                        }
+                    });
+                });
+    }
+
+    @Override
+    public String getFeatureID() {
+        return "chunk_recompress";
+    }
+}
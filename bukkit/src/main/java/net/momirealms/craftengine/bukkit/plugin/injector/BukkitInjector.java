@@ -10,6 +10,7 @@ import net.bytebuddy.implementation.FieldAccessor;
 import net.bytebuddy.implementation.FixedValue;
 import net.bytebuddy.implementation.MethodDelegation;
 import net.bytebuddy.implementation.bind.annotation.AllArguments;
+import net.bytebuddy.implementation.bind.annotation.Argument;
 import net.bytebuddy.implementation.bind.annotation.RuntimeType;
 import net.bytebuddy.implementation.bind.annotation.SuperCall;
 import net.bytebuddy.implementation.bind.annotation.This;
@@ -603,26 +604,23 @@ public class BukkitInjector {
     public static class GetAndSetInterceptor {
         public static final GetAndSetInterceptor INSTANCE = new GetAndSetInterceptor();
 
+        // bound by type so that the generated container passes the coordinates without boxing them into an argument array
         @RuntimeType
-        public Object intercept(@This Object thisObj, @AllArguments Object[] args) {
-            InjectedPalettedContainerHolder holder = (InjectedPalettedContainerHolder) thisObj;
-            Object targetStates = holder.target();
-            int x = (int) args[0];
-            int y = (int) args[1];
-            int z = (int) args[2];
-            Object previousState = FastNMS.INSTANCE.method$PalettedContainer$getAndSet(targetStates, x, y, z, args[3]);
+        public Object intercept(@This InjectedPalettedContainerHolder holder, @Argument(0) int x, @Argument(1) int y, @Argument(2) int z, @Argument(3) Object newState) {
+            Object previousState = FastNMS.INSTANCE.method$PalettedContainer$getAndSet(holder.target(), x, y, z, newState);
             try {
-                Object newState = args[3];
                 int stateId = BlockStateUtils.blockStateToId(newState);
-                CESection section = holder.ceSection();
                 if (BlockStateUtils.isVanillaBlock(stateId)) {
-                    section.setBlockState(x, y, z, EmptyBlock.INSTANCE.defaultState());
+                    // a vanilla block never has a custom state behind it, so there's nothing to clear
+                    if (!BlockStateUtils.isVanillaBlock(previousState)) {
+                        holder.ceSection().setBlockState(x, y, z, EmptyBlock.INSTANCE.defaultState());
+                    }
                     if (ConfigManager.enableLightSystem() && ConfigManager.forceUpdateLight()) {
                         updateLightIfChanged(holder, previousState, newState, null, y, z, x);
                     }
                 } else {
                     ImmutableBlockState immutableBlockState = BukkitBlockManager.instance().getImmutableBlockStateUnsafe(stateId);
-                    section.setBlockState(x, y, z, immutableBlockState);
+                    holder.ceSection().setBlockState(x, y, z, immutableBlockState);
                     if (!immutableBlockState.isEmpty()) {
                         if (ConfigManager.enableLightSystem()) {
                             updateLightIfChanged(holder, previousState, newState, immutableBlockState.vanillaBlockState().handle(), y, z, x);
@@ -6,6 +6,7 @@ import io.netty.handler.codec.MessageToMessageDecoder;
 import io.netty.handler.codec.MessageToMessageEncoder;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 import net.momirealms.craftengine.bukkit.nms.FastNMS;
 import net.momirealms.craftengine.bukkit.plugin.BukkitCraftEngine;
 import net.momirealms.craftengine.bukkit.plugin.network.impl.*;
@@ -37,8 +38,11 @@ import java.util.function.BiConsumer;
 
 public class BukkitNetworkManager implements NetworkManager, Listener, PluginMessageListener {
     private static BukkitNetworkManager instance;
-    private static final Map<Class<?>, TriConsumer<NetWorkUser, NMSPacketEvent, Object>> nmsPacketFunctions = new HashMap<>();
-    private static final Map<Integer, BiConsumer<NetWorkUser, ByteBufPacketEvent>> byteBufPacketFunctions = new HashMap<>();
+    // packet classes are unique, so they can be looked up by identity
+    private static final Map<Class<?>, TriConsumer<NetWorkUser, NMSPacketEvent, Object>> nmsPacketFunctions = new Reference2ObjectOpenHashMap<>();
+    // packet ids are small and dense, so they index an array directly
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<NetWorkUser, ByteBufPacketEvent>[] byteBufPacketFunctions = new BiConsumer[0];
 
     private static void registerNMSPacketConsumer(final TriConsumer<NetWorkUser, NMSPacketEvent, Object> function, @Nullable Class<?> packet) {
         if (packet == null) return;
@@ -46,7 +50,17 @@ public class BukkitNetworkManager implements NetworkManager, Listener, PluginMes
     }
 
     private static void registerByteBufPacketConsumer(final BiConsumer<NetWorkUser, ByteBufPacketEvent> function, int id) {
-        byteBufPacketFunctions.put(id, function);
+        if (id < 0) return;
+        if (id >= byteBufPacketFunctions.length) {
+            byteBufPacketFunctions = Arrays.copyOf(byteBufPacketFunctions, id + 1);
+        }
+        byteBufPacketFunctions[id] = function;
+    }
+
+    @Nullable
+    private static BiConsumer<NetWorkUser, ByteBufPacketEvent> getByteBufPacketConsumer(int id) {
+        BiConsumer<NetWorkUser, ByteBufPacketEvent>[] functions = byteBufPacketFunctions;
+        return id >= 0 && id < functions.length ? functions[id] : null;
     }
 
     private final BiConsumer<Object, List<Object>> packetsConsumer;
@@ -161,6 +175,7 @@ public class BukkitNetworkManager implements NetworkManager, Listener, PluginMes
         Channel channel = getChannel(player);
         NetWorkUser user = removeUser(channel);
         if (user == null) return;
+        ((BukkitServerPlayer) user).removeFromSpatialIndex();
         handleDisconnection(channel);
         this.onlineUsers.remove(player.getUniqueId());
         this.resetUserArray();
@@ -441,15 +456,22 @@ public class BukkitNetworkManager implements NetworkManager, Listener, PluginMes
         @Override
         public void write(ChannelHandlerContext context, Object packet, ChannelPromise channelPromise) throws Exception {
             try {
+                // most packets have no consumer, pass them through without creating an event
+                if (!isHandledOnSend(packet)) {
+                    super.write(context, packet, channelPromise);
+                    return;
+                }
                 NMSPacketEvent event = new NMSPacketEvent(packet);
                 onNMSPacketSend(player, event, packet);
                 if (event.isCancelled()) return;
                 super.write(context, packet, channelPromise);
-                channelPromise.addListener((p) -> {
-                    for (Runnable task : event.getDelayedTasks()) {
-                        task.run();
-                    }
-                });
+                if (event.hasDelayedTasks()) {
+                    channelPromise.addListener((p) -> {
+                        for (Runnable task : event.getDelayedTasks()) {
+                            task.run();
+                        }
+                    });
+                }
             } catch (Throwable e) {
                 plugin.logger().severe("An error occurred when reading packets", e);
                 super.write(context, packet, channelPromise);
@@ -458,6 +480,10 @@ public class BukkitNetworkManager implements NetworkManager, Listener, PluginMes
 
         @Override
         public void channelRead(@NotNull ChannelHandlerContext context, @NotNull Object packet) throws Exception {
+            if (!nmsPacketFunctions.containsKey(packet.getClass())) {
+                super.channelRead(context, packet);
+                return;
+            }
             NMSPacketEvent event = new NMSPacketEvent(packet);
             onNMSPacketReceive(player, event, packet);
             if (event.isCancelled()) return;
@@ -512,11 +538,14 @@ public class BukkitNetworkManager implements NetworkManager, Listener, PluginMes
             if (player.encoderState() != ConnectionState.PLAY) return;
             int size = buffer.readableBytes();
             if (size != 0) {
+                int preProcessIndex = buffer.readerIndex();
+                int packetId = peekVarInt(buffer, preProcessIndex);
+                BiConsumer<NetWorkUser, ByteBufPacketEvent> function = getByteBufPacketConsumer(packetId);
+                if (function == null) return;
                 FriendlyByteBuf buf = new FriendlyByteBuf(buffer);
-                int preProcessIndex = buf.readerIndex();
-                int packetId = buf.readVarInt();
+                buf.readVarInt();
                 ByteBufPacketEvent event = new ByteBufPacketEvent(packetId, buf);
-                BukkitNetworkManager.this.handleByteBufPacket(this.player, event);
+                function.accept(this.player, event);
                 if (event.isCancelled()) {
                     buf.clear();
                 } else if (!event.changed()) {
@@ -557,15 +586,36 @@ public class BukkitNetworkManager implements NetworkManager, Listener, PluginMes
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private boolean isHandledOnSend(Object packet) throws ReflectiveOperationException {
+        if (Reflections.clazz$ClientboundBundlePacket.isInstance(packet)) {
+            for (Object p : (Iterable<Object>) Reflections.field$BundlePacket$packets.get(packet)) {
+                if (isHandledOnSend(p)) return true;
+            }
+            return false;
+        }
+        return nmsPacketFunctions.containsKey(packet.getClass());
+    }
+
     protected void handleNMSPacket(NetWorkUser user, NMSPacketEvent event, Object packet) {
-        Optional.ofNullable(nmsPacketFunctions.get(packet.getClass()))
-                .ifPresent(function -> function.accept(user, event, packet));
+        TriConsumer<NetWorkUser, NMSPacketEvent, Object> function = nmsPacketFunctions.get(packet.getClass());
+        if (function != null) {
+            function.accept(user, event, packet);
+        }
     }
 
-    protected void handleByteBufPacket(NetWorkUser user, ByteBufPacketEvent event) {
-        int packetID = event.packetID();
-        Optional.ofNullable(byteBufPacketFunctions.get(packetID))
-                .ifPresent(function -> function.accept(user, event));
+    // reads the packet id without moving the reader index, returns -1 if it is malformed
+    private static int peekVarInt(ByteBuf buffer, int index) {
+        int value = 0;
+        int end = Math.min(buffer.writerIndex(), index + 5);
+        for (int i = index, shift = 0; i < end; i++, shift += 7) {
+            byte byteValue = buffer.getByte(i);
+            value |= (byteValue & 127) << shift;
+            if ((byteValue & 128) == 0) {
+                return value;
+            }
+        }
+        return -1;
     }
 
     private void compress(ChannelHandlerContext ctx, ByteBuf input) {
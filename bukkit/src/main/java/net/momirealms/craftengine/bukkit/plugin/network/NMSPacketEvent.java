@@ -5,7 +5,6 @@ import net.momirealms.craftengine.core.util.Cancellable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 
 public class NMSPacketEvent implements Cancellable {
     private boolean cancelled;
@@ -27,8 +26,12 @@ public class NMSPacketEvent implements Cancellable {
         delayedTasks.add(task);
     }
 
+    public boolean hasDelayedTasks() {
+        return delayedTasks != null;
+    }
+
     public List<Runnable> getDelayedTasks() {
-        return Optional.ofNullable(delayedTasks).orElse(Collections.emptyList());
+        return delayedTasks == null ? Collections.emptyList() : delayedTasks;
     }
 
     @Override
@@ -1,7 +1,8 @@
 package net.momirealms.craftengine.bukkit.plugin.network;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import it.unimi.dsi.fastutil.ints.IntList;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.TranslationArgument;
@@ -25,9 +26,7 @@ import net.momirealms.craftengine.core.plugin.network.NetWorkUser;
 import net.momirealms.craftengine.core.plugin.network.NetworkManager;
 import net.momirealms.craftengine.core.util.*;
 import net.momirealms.craftengine.core.world.BlockPos;
-import net.momirealms.craftengine.core.world.chunk.Palette;
-import net.momirealms.craftengine.core.world.chunk.PalettedContainer;
-import net.momirealms.craftengine.core.world.chunk.packet.MCSection;
+import net.momirealms.craftengine.core.world.chunk.packet.ChunkBufferRemapper;
 import org.bukkit.*;
 import org.bukkit.block.data.BlockData;
 import org.bukkit.entity.Player;
@@ -45,8 +44,14 @@ import java.util.function.Consumer;
 public class PacketConsumers {
     private static int[] mappings;
     private static int[] mappingsMOD;
-    private static IntIdentityList BLOCK_LIST;
-    private static IntIdentityList BIOME_LIST;
+    private static final RemappedChunkCache REMAPPED_CHUNKS = new RemappedChunkCache();
+    private static final RemappedChunkCache REMAPPED_CHUNKS_MOD = new RemappedChunkCache();
+    // replacement sound holders by registered sound holder. Sounds that are not replaced map to themselves.
+    // Only registry references are cached: they live as long as the registry and are the same instance in every packet,
+    // while direct holders are usually created for a single packet and would never hit
+    private static final Cache<Object, Object> REMAPPED_SOUNDS = Caffeine.newBuilder()
+            .maximumSize(4096)
+            .build();
 
     public static void init(Map<Integer, Integer> map, int registrySize) {
         mappings = new int[registrySize];
@@ -60,8 +65,11 @@ public class PacketConsumers {
                 mappingsMOD[entry.getKey()] = entry.getValue();
             }
         }
-        BLOCK_LIST = new IntIdentityList(registrySize);
-        BIOME_LIST = new IntIdentityList(RegistryUtils.currentBiomeRegistrySize());
+        REMAPPED_CHUNKS.clear();
+        REMAPPED_CHUNKS_MOD.clear();
+        REMAPPED_CHUNKS.setMaxBytes(ConfigManager.remappedChunkCacheBytes());
+        REMAPPED_CHUNKS_MOD.setMaxBytes(ConfigManager.remappedChunkCacheBytes());
+        REMAPPED_SOUNDS.invalidateAll();
     }
 
     public static int remap(int stateId) {
@@ -74,67 +82,16 @@ public class PacketConsumers {
 
     public static final TriConsumer<NetWorkUser, NMSPacketEvent, Object> LEVEL_CHUNK_WITH_LIGHT = (user, event, packet) -> {
         try {
-            if (user.clientModEnabled()) {
-                BukkitServerPlayer player = (BukkitServerPlayer) user;
-                Object chunkData = Reflections.field$ClientboundLevelChunkWithLightPacket$chunkData.get(packet);
-                byte[] buffer = (byte[]) Reflections.field$ClientboundLevelChunkPacketData$buffer.get(chunkData);
-                ByteBuf buf = Unpooled.copiedBuffer(buffer);
-                FriendlyByteBuf friendlyByteBuf = new FriendlyByteBuf(buf);
-                FriendlyByteBuf newBuf = new FriendlyByteBuf(Unpooled.buffer());
-                for (int i = 0, count = player.clientSideSectionCount(); i < count; i++) {
-                    try {
-                        MCSection mcSection = new MCSection(BLOCK_LIST, BIOME_LIST);
-                        mcSection.readPacket(friendlyByteBuf);
-                        PalettedContainer<Integer> container = mcSection.blockStateContainer();
-                        Palette<Integer> palette = container.data().palette();
-                        if (palette.canRemap()) {
-                            palette.remap(PacketConsumers::remapMOD);
-                        } else {
-                            for (int j = 0; j < 4096; j++) {
-                                int state = container.get(j);
-                                int newState = remapMOD(state);
-                                if (newState != state) {
-                                    container.set(j, newState);
-                                }
-                            }
-                        }
-                        mcSection.writePacket(newBuf);
-                    } catch (Exception e) {
-                        break;
-                    }
-                }
-                Reflections.field$ClientboundLevelChunkPacketData$buffer.set(chunkData, newBuf.array());
-            } else {
-                BukkitServerPlayer player = (BukkitServerPlayer) user;
-                Object chunkData = Reflections.field$ClientboundLevelChunkWithLightPacket$chunkData.get(packet);
-                byte[] buffer = (byte[]) Reflections.field$ClientboundLevelChunkPacketData$buffer.get(chunkData);
-                ByteBuf buf = Unpooled.copiedBuffer(buffer);
-                FriendlyByteBuf friendlyByteBuf = new FriendlyByteBuf(buf);
-                FriendlyByteBuf newBuf = new FriendlyByteBuf(Unpooled.buffer());
-                for (int i = 0, count = player.clientSideSectionCount(); i < count; i++) {
-                    try {
-                        MCSection mcSection = new MCSection(BLOCK_LIST, BIOME_LIST);
-                        mcSection.readPacket(friendlyByteBuf);
-                        PalettedContainer<Integer> container = mcSection.blockStateContainer();
-                        Palette<Integer> palette = container.data().palette();
-                        if (palette.canRemap()) {
-                            palette.remap(PacketConsumers::remap);
-                        } else {
-                            for (int j = 0; j < 4096; j++) {
-                                int state = container.get(j);
-                                int newState = remap(state);
-                                if (newState != state) {
-                                    container.set(j, newState);
-                                }
-                            }
-                        }
-                        mcSection.writePacket(newBuf);
-                    } catch (Exception e) {
-                        break;
-                    }
-                }
-                Reflections.field$ClientboundLevelChunkPacketData$buffer.set(chunkData, newBuf.array());
-            }
+            BukkitServerPlayer player = (BukkitServerPlayer) user;
+            boolean mod = user.clientModEnabled();
+            int sectionCount = player.clientSideSectionCount();
+            Object chunkData = Reflections.field$ClientboundLevelChunkWithLightPacket$chunkData.get(packet);
+            byte[] buffer = (byte[]) Reflections.field$ClientboundLevelChunkPacketData$buffer.get(chunkData);
+            int x = (int) Reflections.field$ClientboundLevelChunkWithLightPacket$x.get(packet);
+            int z = (int) Reflections.field$ClientboundLevelChunkWithLightPacket$z.get(packet);
+            RemappedChunkCache cache = mod ? REMAPPED_CHUNKS_MOD : REMAPPED_CHUNKS;
+            byte[] newBuffer = cache.getOrRemap(player.clientSideDimension(), x, z, buffer, original -> ChunkBufferRemapper.remap(original, sectionCount, mod ? mappingsMOD : mappings));
+            Reflections.field$ClientboundLevelChunkPacketData$buffer.set(chunkData, newBuffer);
         } catch (Exception e) {
             CraftEngine.instance().logger().warn("Failed to handle ClientboundLevelChunkWithLightPacket", e);
         }
@@ -618,7 +575,7 @@ public class PacketConsumers {
                 int entityId = (int) Reflections.field$ClientboundAddEntityPacket$entityId.get(packet);
                 LoadedFurniture furniture = BukkitFurnitureManager.instance().getLoadedFurnitureByBaseEntityId(entityId);
                 if (furniture != null) {
-                    user.furnitureView().computeIfAbsent(furniture.baseEntityId(), k -> new ArrayList<>()).addAll(furniture.subEntityIds());
+                    user.furnitureView().put(furniture.baseEntityId(), furniture.subEntityIds());
                     user.sendPacket(furniture.spawnPacket(), false);
                     if (ConfigManager.hideBaseEntity()) {
                         event.setCancelled(true);
@@ -656,11 +613,9 @@ public class PacketConsumers {
         try {
             IntList intList = (IntList) Reflections.field$ClientboundRemoveEntitiesPacket$entityIds.get(packet);
             for (int i = 0, size = intList.size(); i < size; i++) {
-                List<Integer> entities = user.furnitureView().remove(intList.getInt(i));
+                int[] entities = user.furnitureView().remove(intList.getInt(i));
                 if (entities == null) continue;
-                for (int entityId : entities) {
-                    intList.add(entityId);
-                }
+                intList.addElements(intList.size(), entities);
             }
         } catch (Exception e) {
             CraftEngine.instance().logger().warn("Failed to handle ClientboundRemoveEntitiesPacket", e);
@@ -671,9 +626,9 @@ public class PacketConsumers {
         try {
             Player player = (Player) user.platformPlayer();
             if (player == null) return;
-            int entityId = (int) Reflections.field$ServerboundInteractPacket$entityId.get(packet);
-            Object action = Reflections.field$ServerboundInteractPacket$action.get(packet);
-            Object actionType = Reflections.method$ServerboundInteractPacket$Action$getType.invoke(action);
+            int entityId = (int) Reflections.methodHandle$ServerboundInteractPacket$entityIdGetter.invokeExact(packet);
+            Object action = (Object) Reflections.methodHandle$ServerboundInteractPacket$actionGetter.invokeExact(packet);
+            Object actionType = (Object) Reflections.methodHandle$ServerboundInteractPacket$Action$getType.invokeExact(action);
             if (actionType == null) return;
             LoadedFurniture furniture = BukkitFurnitureManager.instance().getLoadedFurnitureByInteractionEntityId(entityId);
             if (furniture == null) return;
@@ -696,14 +651,14 @@ public class PacketConsumers {
                     InteractionHand hand;
                     Location interactionPoint;
                     try {
-                        Object interactionHand = Reflections.field$ServerboundInteractPacket$InteractionAtLocationAction$hand.get(action);
+                        Object interactionHand = (Object) Reflections.methodHandle$ServerboundInteractPacket$InteractionAtLocationAction$handGetter.invokeExact(action);
                         hand = interactionHand == Reflections.instance$InteractionHand$MAIN_HAND ? InteractionHand.MAIN_HAND : InteractionHand.OFF_HAND;
-                        Object vec3 = Reflections.field$ServerboundInteractPacket$InteractionAtLocationAction$location.get(action);
-                        double x = (double) Reflections.field$Vec3$x.get(vec3);
-                        double y = (double) Reflections.field$Vec3$y.get(vec3);
-                        double z = (double) Reflections.field$Vec3$z.get(vec3);
+                        Object vec3 = (Object) Reflections.methodHandle$ServerboundInteractPacket$InteractionAtLocationAction$locationGetter.invokeExact(action);
+                        double x = (double) Reflections.methodHandle$Vec3$xGetter.invokeExact(vec3);
+                        double y = (double) Reflections.methodHandle$Vec3$yGetter.invokeExact(vec3);
+                        double z = (double) Reflections.methodHandle$Vec3$zGetter.invokeExact(vec3);
                         interactionPoint = new Location(location.getWorld(), x, y, z);
-                    } catch (ReflectiveOperationException e) {
+                    } catch (Throwable e) {
                         throw new RuntimeException("Failed to get interaction hand from interact packet", e);
                     }
                     FurnitureInteractEvent interactEvent = new FurnitureInteractEvent(serverPlayer.platformPlayer(), furniture, hand, interactionPoint);
@@ -719,39 +674,47 @@ public class PacketConsumers {
                     });
                 }
             }, player.getWorld(), location.getBlockX() >> 4,location.getBlockZ() >> 4);
-        } catch (Exception e) {
+        } catch (Throwable e) {
             CraftEngine.instance().logger().warn("Failed to handle ServerboundInteractPacket", e);
         }
     };
 
     public static final TriConsumer<NetWorkUser, NMSPacketEvent, Object> SOUND = (user, event, packet) -> {
         try {
-            Object sound = Reflections.field$ClientboundSoundPacket$sound.get(packet);
-            Object soundEvent = Reflections.method$Holder$value.invoke(sound);
-            Key mapped = BukkitBlockManager.instance().replaceSoundIfExist(Key.of(Reflections.field$SoundEvent$location.get(soundEvent).toString()));
-            if (mapped != null) {
-                event.setCancelled(true);
-                Object newId = Reflections.method$ResourceLocation$fromNamespaceAndPath.invoke(null, mapped.namespace(), mapped.value());
-                Object newSoundEvent = VersionHelper.isVersionNewerThan1_21_2() ?
-                        Reflections.constructor$SoundEvent.newInstance(newId, Reflections.field$SoundEvent$fixedRange.get(soundEvent)) :
-                        Reflections.constructor$SoundEvent.newInstance(newId, Reflections.field$SoundEvent$range.get(soundEvent), Reflections.field$SoundEvent$newSystem.get(soundEvent));
-                Object newSoundPacket = Reflections.constructor$ClientboundSoundPacket.newInstance(
-                        Reflections.method$Holder$direct.invoke(null, newSoundEvent),
-                        Reflections.field$ClientboundSoundPacket$source.get(packet),
-                        (double) Reflections.field$ClientboundSoundPacket$x.getInt(packet) / 8,
-                        (double) Reflections.field$ClientboundSoundPacket$y.getInt(packet) / 8,
-                        (double) Reflections.field$ClientboundSoundPacket$z.getInt(packet) / 8,
-                        Reflections.field$ClientboundSoundPacket$volume.get(packet),
-                        Reflections.field$ClientboundSoundPacket$pitch.get(packet),
-                        Reflections.field$ClientboundSoundPacket$seed.get(packet)
-                );
-                user.sendPacket(newSoundPacket, true);
+            Object sound = (Object) Reflections.methodHandle$ClientboundSoundPacket$soundGetter.invokeExact(packet);
+            Object remapped;
+            if (Reflections.clazz$Holder$Reference.isInstance(sound)) {
+                remapped = REMAPPED_SOUNDS.getIfPresent(sound);
+                if (remapped == null) {
+                    remapped = remapSound(sound);
+                    REMAPPED_SOUNDS.put(sound, remapped);
+                }
+            } else {
+                remapped = remapSound(sound);
             }
-        } catch (Exception e) {
+            if (remapped != sound) {
+                // the same packet may be sent to several players, but they would all get the same replacement
+                Reflections.field$ClientboundSoundPacket$sound.set(packet, remapped);
+            }
+        } catch (Throwable e) {
             CraftEngine.instance().logger().warn("Failed to handle ClientboundSoundPacket", e);
         }
     };
 
+    private static Object remapSound(Object sound) throws Throwable {
+        Object soundEvent = (Object) Reflections.methodHandle$Holder$value.invokeExact(sound);
+        Object soundId = (Object) Reflections.methodHandle$SoundEvent$locationGetter.invokeExact(soundEvent);
+        Key mapped = BukkitBlockManager.instance().replaceSoundIfExist(Key.of(soundId.toString()));
+        if (mapped == null) {
+            return sound;
+        }
+        Object newId = Reflections.method$ResourceLocation$fromNamespaceAndPath.invoke(null, mapped.namespace(), mapped.value());
+        Object newSoundEvent = VersionHelper.isVersionNewerThan1_21_2() ?
+                Reflections.constructor$SoundEvent.newInstance(newId, Reflections.field$SoundEvent$fixedRange.get(soundEvent)) :
+                Reflections.constructor$SoundEvent.newInstance(newId, Reflections.field$SoundEvent$range.get(soundEvent), Reflections.field$SoundEvent$newSystem.get(soundEvent));
+        return Reflections.method$Holder$direct.invoke(null, newSoundEvent);
+    }
+
     // we handle it on packet level to prevent it from being captured by plugins
     public static final TriConsumer<NetWorkUser, NMSPacketEvent, Object> RENAME_ITEM = (user, event, packet) -> {
         try {
@@ -861,42 +824,17 @@ public class PacketConsumers {
     };
 
     private static Pair<Boolean, String> processClientString(String original, ImageManager manager) {
-        if (original.isEmpty()) {
-            return Pair.of(false, original);
-        }
-        int[] codepoints = CharacterUtils.charsToCodePoints(original.toCharArray());
-        int[] newCodepoints = new int[codepoints.length];
-        boolean hasIllegal = false;
-        for (int i = 0; i < codepoints.length; i++) {
-            int codepoint = codepoints[i];
-            if (manager.isIllegalCharacter(codepoint)) {
-                newCodepoints[i] = '*';
-                hasIllegal = true;
-            } else {
-                newCodepoints[i] = codepoint;
-            }
-        }
-        return hasIllegal ? Pair.of(true, new String(newCodepoints, 0, newCodepoints.length)) : Pair.of(false, original);
+        String result = manager.replaceIllegalCharacters(original);
+        return Pair.of(result != original, result);
     }
 
     private static void runIfContainsIllegalCharacter(String string, ImageManager manager, Consumer<String> callback) {
-        if (string.isEmpty()) return;
-        int[] codepoints = CharacterUtils.charsToCodePoints(string.toCharArray());
-        int[] newCodepoints = new int[codepoints.length];
-        boolean hasIllegal = false;
-        for (int i = 0; i < codepoints.length; i++) {
-            int codepoint = codepoints[i];
-            if (!manager.isIllegalCharacter(codepoint)) {
-                newCodepoints[i] = codepoint;
-            } else {
-                newCodepoints[i] = '*';
-                hasIllegal = true;
-            }
-        }
-        if (hasIllegal) {
-            callback.accept(new String(newCodepoints, 0, newCodepoints.length));
+        String result = manager.replaceIllegalCharacters(string);
+        if (result != string) {
+            callback.accept(result);
         }
     }
+
     public static final TriConsumer<NetWorkUser, NMSPacketEvent, Object> CUSTOM_PAYLOAD = (user, event, packet) -> {
         try {
             if (!VersionHelper.isVersionNewerThan1_20_5()) return;
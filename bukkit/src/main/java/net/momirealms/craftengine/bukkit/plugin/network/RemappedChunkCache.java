@@ -0,0 +1,51 @@
+package net.momirealms.craftengine.bukkit.plugin.network;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import net.momirealms.craftengine.core.util.Key;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Shares the rewritten section payload of a chunk among all the players receiving it.
+ * <p>
+ * An entry only hits if the original payload is byte-for-byte identical to the one it was built from,
+ * so any block or biome change in the chunk naturally produces a miss and replaces the entry.
+ * The cache is bounded by the total size of the payloads it holds, since chunk payloads vary a lot in size.
+ */
+public class RemappedChunkCache {
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    private final Cache<ChunkKey, Entry> cache = Caffeine.newBuilder()
+            .maximumWeight(DEFAULT_MAX_BYTES)
+            // chunks without custom blocks are returned as they are, so both arrays are the same one
+            .weigher((ChunkKey key, Entry entry) -> entry.remapped == entry.original ? entry.original.length : entry.original.length + entry.remapped.length)
+            .expireAfterAccess(30, TimeUnit.SECONDS)
+            .build();
+
+    public byte[] getOrRemap(Key dimension, int x, int z, byte[] original, UnaryOperator<byte[]> remapper) {
+        ChunkKey key = new ChunkKey(dimension, x, z);
+        Entry entry = this.cache.getIfPresent(key);
+        if (entry != null && Arrays.equals(entry.original, original)) {
+            return entry.remapped;
+        }
+        byte[] remapped = remapper.apply(original);
+        this.cache.put(key, new Entry(original, remapped));
+        return remapped;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.cache.policy().eviction().ifPresent(eviction -> eviction.setMaximum(Math.max(0, maxBytes)));
+    }
+
+    public void clear() {
+        this.cache.invalidateAll();
+    }
+
+    private record ChunkKey(Key dimension, int x, int z) {
+    }
+
+    private record Entry(byte[] original, byte[] remapped) {
+    }
+}
@@ -2,12 +2,16 @@ package net.momirealms.craftengine.bukkit.plugin.user;
 
 import com.google.common.collect.Lists;
 import io.netty.channel.Channel;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMaps;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import net.kyori.adventure.text.Component;
 import net.momirealms.craftengine.bukkit.item.BukkitItemManager;
 import net.momirealms.craftengine.bukkit.nms.FastNMS;
 import net.momirealms.craftengine.bukkit.plugin.BukkitCraftEngine;
 import net.momirealms.craftengine.bukkit.util.*;
 import net.momirealms.craftengine.bukkit.world.BukkitWorld;
+import net.momirealms.craftengine.bukkit.world.BukkitWorldManager;
 import net.momirealms.craftengine.core.block.ImmutableBlockState;
 import net.momirealms.craftengine.core.block.PackedBlockState;
 import net.momirealms.craftengine.core.entity.player.InteractionHand;
@@ -31,10 +35,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
-import java.util.List;
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class BukkitServerPlayer extends Player {
     private final Channel channel;
@@ -64,10 +65,13 @@ public class BukkitServerPlayer extends Player {
     private int resentSwingTick;
 
     private Key lastUsedRecipe = null;
+    // the world whose player index this player is currently in
+    private CEWorld indexedWorld;
 
     private boolean hasClientMod = false;
     // for better fake furniture visual sync
-    private final Map<Integer, List<Integer>> furnitureView = new ConcurrentHashMap<>();
+    // base entity id -> sub entity ids, written by the netty thread and by furniture loaded late on the main thread
+    private final Int2ObjectMap<int[]> furnitureView = Int2ObjectMaps.synchronize(new Int2ObjectOpenHashMap<>());
 
     public BukkitServerPlayer(BukkitCraftEngine plugin, Channel channel) {
         this.channel = channel;
@@ -286,6 +290,7 @@ public class BukkitServerPlayer extends Player {
     public void tick() {
         // not fully online
         if (serverPlayer() == null) return;
+        this.updateSpatialIndex();
         if (this.isDestroyingBlock)  {
             this.tickBlockDestroy();
         }
@@ -296,8 +301,8 @@ public class BukkitServerPlayer extends Player {
         try {
             Object serverPlayer = serverPlayer();
             Object blockPos = LocationUtils.toBlockPos(pos.x(), pos.y(), pos.z());
-            return (float) Reflections.method$BlockStateBase$getDestroyProgress.invoke(blockState, serverPlayer, Reflections.method$Entity$level.invoke(serverPlayer), blockPos);
-        } catch (ReflectiveOperationException e) {
+            return (float) Reflections.methodHandle$BlockStateBase$getDestroyProgress.invokeExact(blockState, serverPlayer, (Object) Reflections.methodHandle$Entity$level.invokeExact(serverPlayer), blockPos);
+        } catch (Throwable e) {
             this.plugin.logger().warn("Failed to get destroy progress for player " + platformPlayer().getName());
             return 0f;
         }
@@ -392,9 +397,9 @@ public class BukkitServerPlayer extends Player {
         if (this.isDestroyingCustomBlock) {
             try {
                 Object serverPlayer = serverPlayer();
-                Object gameMode = Reflections.field$ServerPlayer$gameMode.get(serverPlayer);
-                Reflections.field$ServerPlayerGameMode$isDestroyingBlock.set(gameMode, false);
-            } catch (ReflectiveOperationException e) {
+                Object gameMode = (Object) Reflections.methodHandle$ServerPlayer$gameModeGetter.invokeExact(serverPlayer);
+                Reflections.methodHandle$ServerPlayerGameMode$isDestroyingBlockSetter.invokeExact(gameMode, false);
+            } catch (Throwable e) {
                 throw new RuntimeException(e);
             }
         }
@@ -414,13 +419,13 @@ public class BukkitServerPlayer extends Player {
             }
             Object blockPos = LocationUtils.toBlockPos(hitPos);
             Object serverPlayer = serverPlayer();
-            Object gameMode = Reflections.field$ServerPlayer$gameMode.get(serverPlayer);
-            int currentTick = (int) Reflections.field$ServerPlayerGameMode$gameTicks.get(gameMode);
+            Object gameMode = (Object) Reflections.methodHandle$ServerPlayer$gameModeGetter.invokeExact(serverPlayer);
+            int currentTick = (int) Reflections.methodHandle$ServerPlayerGameMode$gameTicksGetter.invokeExact(gameMode);
             if (currentTick - this.lastHitBlockTime > 3) {
-                Object blockOwner = Reflections.field$StateHolder$owner.get(this.destroyedState);
-                Object soundType = Reflections.field$BlockBehaviour$soundType.get(blockOwner);
-                Object soundEvent = Reflections.field$SoundType$hitSound.get(soundType);
-                Object soundId = Reflections.field$SoundEvent$location.get(soundEvent);
+                Object blockOwner = (Object) Reflections.methodHandle$StateHolder$ownerGetter.invokeExact(this.destroyedState);
+                Object soundType = (Object) Reflections.methodHandle$BlockBehaviour$soundTypeGetter.invokeExact(blockOwner);
+                Object soundEvent = (Object) Reflections.methodHandle$SoundType$hitSoundGetter.invokeExact(soundType);
+                Object soundId = (Object) Reflections.methodHandle$SoundEvent$locationGetter.invokeExact(soundEvent);
                 level().playBlockSound(new Vec3d(this.destroyPos.x(), this.destroyPos.y(), this.destroyPos.z()), Key.of(soundId.toString()), 0.5F, 0.5F);
                 this.lastHitBlockTime = currentTick;
             }
@@ -437,7 +442,7 @@ public class BukkitServerPlayer extends Player {
                         return;
                     }
                 }
-                this.miningProgress = (float) Reflections.method$BlockStateBase$getDestroyProgress.invoke(this.destroyedState, serverPlayer, Reflections.method$Entity$level.invoke(serverPlayer), blockPos) + miningProgress;
+                this.miningProgress = (float) Reflections.methodHandle$BlockStateBase$getDestroyProgress.invokeExact(this.destroyedState, serverPlayer, (Object) Reflections.methodHandle$Entity$level.invokeExact(serverPlayer), blockPos) + miningProgress;
                 int packetStage = (int) (this.miningProgress * 10.0F);
                 if (packetStage != this.lastSentState) {
                     this.lastSentState = packetStage;
@@ -445,27 +450,52 @@ public class BukkitServerPlayer extends Player {
                 }
                 if (this.miningProgress >= 1f) {
                     //Reflections.method$ServerLevel$levelEvent.invoke(Reflections.field$CraftWorld$ServerLevel.get(player.getWorld()), null, 2001, blockPos, BlockStateUtils.blockStateToId(this.destroyedState));
-                    Reflections.method$ServerPlayerGameMode$destroyBlock.invoke(gameMode, blockPos);
-                    Object levelEventPacket = Reflections.constructor$ClientboundLevelEventPacket.newInstance(2001, blockPos, BlockStateUtils.blockStateToId(this.destroyedState), false);
+                    boolean destroyed = (boolean) Reflections.methodHandle$ServerPlayerGameMode$destroyBlock.invokeExact(gameMode, blockPos);
+                    Object levelEventPacket = (Object) Reflections.methodHandle$ClientboundLevelEventPacketConstructor.invokeExact(2001, blockPos, BlockStateUtils.blockStateToId(this.destroyedState), false);
                     sendPacket(levelEventPacket, false);
                     this.stopMiningBlock();
                 }
             }
-        } catch (Exception e) {
+        } catch (Throwable e) {
             plugin.logger().warn("Failed to tick destroy for player " + platformPlayer().getName(), e);
         }
     }
 
-    private void broadcastDestroyProgress(org.bukkit.entity.Player player, BlockPos hitPos, Object blockPos, int stage) throws ReflectiveOperationException {
-        Object packet = Reflections.constructor$ClientboundBlockDestructionPacket.newInstance(Integer.MAX_VALUE - entityID(), blockPos, stage);
-        for (org.bukkit.entity.Player other : player.getWorld().getPlayers()) {
-            Location otherLocation = other.getLocation();
-            double d0 = (double) hitPos.x() - otherLocation.getX();
-            double d1 = (double) hitPos.y() - otherLocation.getY();
-            double d2 = (double) hitPos.z() - otherLocation.getZ();
-            if (d0 * d0 + d1 * d1 + d2 * d2 < 1024.0D) {
-                plugin.networkManager().sendPacket(other, packet);
+    private void broadcastDestroyProgress(org.bukkit.entity.Player player, BlockPos hitPos, Object blockPos, int stage) throws Throwable {
+        Object packet = (Object) Reflections.methodHandle$ClientboundBlockDestructionPacketConstructor.invokeExact(Integer.MAX_VALUE - entityID(), blockPos, stage);
+        CEWorld world = BukkitWorldManager.instance().getWorld(player.getWorld());
+        if (world == null) {
+            for (org.bukkit.entity.Player other : player.getWorld().getPlayers()) {
+                Location otherLocation = other.getLocation();
+                double d0 = (double) hitPos.x() - otherLocation.getX();
+                double d1 = (double) hitPos.y() - otherLocation.getY();
+                double d2 = (double) hitPos.z() - otherLocation.getZ();
+                if (d0 * d0 + d1 * d1 + d2 * d2 < 1024.0D) {
+                    plugin.networkManager().sendPacket(other, packet);
+                }
             }
+            return;
+        }
+        world.players().forEachNearby(hitPos.x(), hitPos.y(), hitPos.z(), 32, other -> other.sendPacket(packet, true));
+    }
+
+    private void updateSpatialIndex() {
+        org.bukkit.entity.Player player = platformPlayer();
+        CEWorld world = BukkitWorldManager.instance().getWorld(player.getWorld());
+        if (world != this.indexedWorld) {
+            this.removeFromSpatialIndex();
+            this.indexedWorld = world;
+        }
+        if (world != null) {
+            Location location = player.getLocation();
+            world.players().update(this, location.getX(), location.getY(), location.getZ());
+        }
+    }
+
+    public void removeFromSpatialIndex() {
+        if (this.indexedWorld != null) {
+            this.indexedWorld.players().remove(this);
+            this.indexedWorld = null;
         }
     }
 
@@ -497,7 +527,7 @@ public class BukkitServerPlayer extends Player {
             if (this.destroyPos != null) {
                 try {
                     this.broadcastDestroyProgress(platformPlayer(), this.destroyPos, LocationUtils.toBlockPos(this.destroyPos), -1);
-                } catch (ReflectiveOperationException e) {
+                } catch (Throwable e) {
                     plugin.logger().warn("Failed to set isDestroyingCustomBlock", e);
                 }
             }
@@ -515,7 +545,7 @@ public class BukkitServerPlayer extends Player {
         if (this.destroyPos == null) return;
         try {
             this.broadcastDestroyProgress(platformPlayer(), this.destroyPos, LocationUtils.toBlockPos(this.destroyPos), -1);
-        } catch (ReflectiveOperationException e) {
+        } catch (Throwable e) {
             plugin.logger().warn("Failed to abort destroyProgress", e);
         }
     }
@@ -597,7 +627,7 @@ public class BukkitServerPlayer extends Player {
     }
 
     @Override
-    public Map<Integer, List<Integer>> furnitureView() {
+    public Int2ObjectMap<int[]> furnitureView() {
         return this.furnitureView;
     }
 
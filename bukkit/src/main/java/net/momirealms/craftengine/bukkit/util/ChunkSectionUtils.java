@@ -0,0 +1,134 @@
+package net.momirealms.craftengine.bukkit.util;
+
+import net.momirealms.craftengine.bukkit.block.BukkitBlockManager;
+import net.momirealms.craftengine.bukkit.nms.FastNMS;
+import net.momirealms.craftengine.core.block.ImmutableBlockState;
+import net.momirealms.craftengine.core.block.PackedBlockState;
+import net.momirealms.craftengine.core.world.chunk.CESection;
+import net.momirealms.craftengine.core.world.chunk.PackedIntegerArray;
+import net.momirealms.craftengine.core.world.chunk.Palette;
+import net.momirealms.craftengine.core.world.chunk.PalettedContainer;
+
+/**
+ * Converts whole sections between vanilla and CraftEngine block states.
+ * <p>
+ * Both directions first resolve the palette of the source section, which is usually tiny,
+ * and return without touching the blocks if none of its entries needs to be converted.
+ * Otherwise, the packed storage is unpacked once and only the matching positions are written.
+ */
+public class ChunkSectionUtils {
+    private static final int SECTION_SIZE = 4096;
+
+    private ChunkSectionUtils() {}
+
+    /**
+     * Copies the custom block states found in a vanilla section into the CraftEngine section
+     *
+     * @param section the vanilla LevelChunkSection
+     * @param ceSection the CraftEngine section
+     */
+    public static void syncCustomBlocks(Object section, CESection ceSection) throws ReflectiveOperationException {
+        BukkitBlockManager blockManager = BukkitBlockManager.instance();
+        Object statesContainer = FastNMS.INSTANCE.field$LevelChunkSection$states(section);
+        Object data = Reflections.varHandle$PalettedContainer$data.get(statesContainer);
+        Object palette = Reflections.field$PalettedContainer$Data$palette.get(data);
+        ImmutableBlockState[] mapping;
+        if (Reflections.clazz$SingleValuePalette.isInstance(palette)) {
+            Object onlyBlockState = Reflections.field$SingleValuePalette$value.get(palette);
+            ImmutableBlockState customState = onlyBlockState == null ? null : blockManager.getImmutableBlockState(BlockStateUtils.blockStateToId(onlyBlockState));
+            if (customState != null) {
+                for (int i = 0; i < SECTION_SIZE; i++) {
+                    ceSection.setBlockState(i, customState);
+                }
+            }
+            return;
+        } else if (Reflections.clazz$LinearPalette.isInstance(palette)) {
+            mapping = toCustomStates(blockManager, (Object[]) Reflections.field$LinearPalette$values.get(palette));
+        } else if (Reflections.clazz$HashMapPalette.isInstance(palette)) {
+            Object biMap = Reflections.field$HashMapPalette$values.get(palette);
+            mapping = toCustomStates(blockManager, (Object[]) Reflections.field$CrudeIncrementalIntIdentityHashBiMap$byId.get(biMap));
+        } else {
+            // the global palette stores registry ids directly
+            mapping = null;
+        }
+        if (mapping != null && mapping.length == 0) {
+            return;
+        }
+        int[] indices = unpackVanillaStorage(data);
+        for (int i = 0; i < SECTION_SIZE; i++) {
+            ImmutableBlockState customState = mapping == null ? blockManager.getImmutableBlockState(indices[i]) : mapping[indices[i]];
+            if (customState != null) {
+                ceSection.setBlockState(i, customState);
+            }
+        }
+    }
+
+    /**
+     * Writes the blocks of a CraftEngine section into the vanilla section
+     *
+     * @param ceSection the CraftEngine section
+     * @param section the vanilla LevelChunkSection
+     * @param vanilla whether to write the vanilla appearance of the blocks instead of their real states
+     */
+    public static void restoreBlocks(CESection ceSection, Object section, boolean vanilla) {
+        PalettedContainer<ImmutableBlockState> container = ceSection.statesContainer();
+        if (container.isEmpty()) return;
+        Object[] handles;
+        int[] indices = new int[SECTION_SIZE];
+        container.lock();
+        try {
+            PalettedContainer.Data<ImmutableBlockState> data = container.data();
+            Palette<ImmutableBlockState> palette = data.palette();
+            handles = new Object[palette.getSize()];
+            boolean hasAny = false;
+            for (int i = 0; i < handles.length; i++) {
+                ImmutableBlockState customState = palette.get(i);
+                if (customState == null || customState.isEmpty()) continue;
+                PackedBlockState packedState = vanilla ? customState.vanillaBlockState() : customState.customBlockState();
+                if (packedState != null) {
+                    handles[i] = packedState.handle();
+                    hasAny = true;
+                }
+            }
+            if (!hasAny) return;
+            data.storage().writePaletteIndices(indices);
+        } finally {
+            container.unlock();
+        }
+        for (int i = 0; i < SECTION_SIZE; i++) {
+            Object handle = handles[indices[i]];
+            if (handle != null) {
+                // index = (y << 4 | z) << 4 | x
+                FastNMS.INSTANCE.method$LevelChunkSection$setBlockState(section, i & 15, i >> 8, (i >> 4) & 15, handle, false);
+            }
+        }
+    }
+
+    // returns an empty array if none of the palette entries is a custom block
+    private static ImmutableBlockState[] toCustomStates(BukkitBlockManager blockManager, Object[] blockStates) {
+        ImmutableBlockState[] mapping = new ImmutableBlockState[blockStates.length];
+        boolean hasAny = false;
+        for (int i = 0; i < blockStates.length; i++) {
+            Object blockState = blockStates[i];
+            if (blockState == null) continue;
+            ImmutableBlockState customState = blockManager.getImmutableBlockState(BlockStateUtils.blockStateToId(blockState));
+            if (customState != null) {
+                mapping[i] = customState;
+                hasAny = true;
+            }
+        }
+        return hasAny ? mapping : new ImmutableBlockState[0];
+    }
+
+    private static int[] unpackVanillaStorage(Object data) throws ReflectiveOperationException {
+        Object storage = Reflections.field$PalettedContainer$Data$storage.get(data);
+        int bits = (int) Reflections.method$BitStorage$getBits.invoke(storage);
+        int[] indices = new int[SECTION_SIZE];
+        if (bits != 0) {
+            // vanilla packs values the same way, without spanning entries across longs
+            long[] raw = (long[]) Reflections.method$BitStorage$getRaw.invoke(storage);
+            new PackedIntegerArray(bits, SECTION_SIZE, raw).writePaletteIndices(indices);
+        }
+        return indices;
+    }
+}
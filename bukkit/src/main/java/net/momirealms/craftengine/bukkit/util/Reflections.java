@@ -27,6 +27,7 @@ import org.jetbrains.annotations.Nullable;
 import sun.misc.Unsafe;
 
 import java.io.BufferedReader;
+import java.lang.invoke.MethodHandle;
 import java.lang.invoke.VarHandle;
 import java.lang.reflect.*;
 import java.time.Instant;
@@ -5531,6 +5532,12 @@ public class Reflections {
             )
     );
 
+    public static final Field field$CrudeIncrementalIntIdentityHashBiMap$byId = requireNonNull(
+            ReflectionUtils.getDeclaredField(
+                    clazz$CrudeIncrementalIntIdentityHashBiMap, Object.class.arrayType(), 1
+            )
+    );
+
     public static final Field field$HashMapPalette$values = requireNonNull(
             ReflectionUtils.getDeclaredField(
                     clazz$HashMapPalette, clazz$CrudeIncrementalIntIdentityHashBiMap, 0
@@ -5771,4 +5778,50 @@ public class Reflections {
                     clazz$Mth, int.class, clazz$RandomSource, int.class, int.class
             )
     );
+
+    // Method handles for hot paths, erased to Object so they can be called with invokeExact
+
+    public static final MethodHandle methodHandle$ServerPlayer$gameModeGetter = ReflectionUtils.getterHandle(field$ServerPlayer$gameMode);
+
+    public static final MethodHandle methodHandle$ServerPlayerGameMode$isDestroyingBlockSetter = ReflectionUtils.setterHandle(field$ServerPlayerGameMode$isDestroyingBlock);
+
+    public static final MethodHandle methodHandle$ServerPlayerGameMode$gameTicksGetter = ReflectionUtils.getterHandle(field$ServerPlayerGameMode$gameTicks);
+
+    public static final MethodHandle methodHandle$ServerPlayerGameMode$destroyBlock = ReflectionUtils.methodHandle(method$ServerPlayerGameMode$destroyBlock);
+
+    public static final MethodHandle methodHandle$StateHolder$ownerGetter = ReflectionUtils.getterHandle(field$StateHolder$owner);
+
+    public static final MethodHandle methodHandle$BlockBehaviour$soundTypeGetter = ReflectionUtils.getterHandle(field$BlockBehaviour$soundType);
+
+    public static final MethodHandle methodHandle$SoundType$hitSoundGetter = ReflectionUtils.getterHandle(field$SoundType$hitSound);
+
+    public static final MethodHandle methodHandle$SoundEvent$locationGetter = ReflectionUtils.getterHandle(field$SoundEvent$location);
+
+    public static final MethodHandle methodHandle$Entity$level = ReflectionUtils.methodHandle(method$Entity$level);
+
+    public static final MethodHandle methodHandle$BlockStateBase$getDestroyProgress = ReflectionUtils.methodHandle(method$BlockStateBase$getDestroyProgress);
+
+    public static final MethodHandle methodHandle$ClientboundLevelEventPacketConstructor = ReflectionUtils.constructorHandle(constructor$ClientboundLevelEventPacket);
+
+    public static final MethodHandle methodHandle$ClientboundBlockDestructionPacketConstructor = ReflectionUtils.constructorHandle(constructor$ClientboundBlockDestructionPacket);
+
+    public static final MethodHandle methodHandle$ClientboundSoundPacket$soundGetter = ReflectionUtils.getterHandle(field$ClientboundSoundPacket$sound);
+
+    public static final MethodHandle methodHandle$Holder$value = ReflectionUtils.methodHandle(method$Holder$value);
+
+    public static final MethodHandle methodHandle$ServerboundInteractPacket$entityIdGetter = ReflectionUtils.getterHandle(field$ServerboundInteractPacket$entityId);
+
+    public static final MethodHandle methodHandle$ServerboundInteractPacket$actionGetter = ReflectionUtils.getterHandle(field$ServerboundInteractPacket$action);
+
+    public static final MethodHandle methodHandle$ServerboundInteractPacket$Action$getType = ReflectionUtils.methodHandle(method$ServerboundInteractPacket$Action$getType);
+
+    public static final MethodHandle methodHandle$ServerboundInteractPacket$InteractionAtLocationAction$handGetter = ReflectionUtils.getterHandle(field$ServerboundInteractPacket$InteractionAtLocationAction$hand);
+
+    public static final MethodHandle methodHandle$ServerboundInteractPacket$InteractionAtLocationAction$locationGetter = ReflectionUtils.getterHandle(field$ServerboundInteractPacket$InteractionAtLocationAction$location);
+
+    public static final MethodHandle methodHandle$Vec3$xGetter = ReflectionUtils.getterHandle(field$Vec3$x);
+
+    public static final MethodHandle methodHandle$Vec3$yGetter = ReflectionUtils.getterHandle(field$Vec3$y);
+
+    public static final MethodHandle methodHandle$Vec3$zGetter = ReflectionUtils.getterHandle(field$Vec3$z);
 }
@@ -4,30 +4,29 @@ import net.momirealms.craftengine.bukkit.compatibility.slimeworld.SlimeFormatSto
 import net.momirealms.craftengine.bukkit.nms.FastNMS;
 import net.momirealms.craftengine.bukkit.plugin.BukkitCraftEngine;
 import net.momirealms.craftengine.bukkit.plugin.injector.BukkitInjector;
-import net.momirealms.craftengine.bukkit.util.BlockStateUtils;
-import net.momirealms.craftengine.bukkit.util.Reflections;
-import net.momirealms.craftengine.core.block.ImmutableBlockState;
+import net.momirealms.craftengine.bukkit.util.ChunkSectionUtils;
 import net.momirealms.craftengine.core.plugin.config.ConfigManager;
 import net.momirealms.craftengine.core.plugin.scheduler.SchedulerTask;
 import net.momirealms.craftengine.core.util.VersionHelper;
 import net.momirealms.craftengine.core.world.CEWorld;
 import net.momirealms.craftengine.core.world.ChunkPos;
+import net.momirealms.craftengine.core.world.SaveBudget;
 import net.momirealms.craftengine.core.world.SectionPos;
 import net.momirealms.craftengine.core.world.WorldManager;
 import net.momirealms.craftengine.core.world.chunk.CEChunk;
 import net.momirealms.craftengine.core.world.chunk.CESection;
-import net.momirealms.craftengine.core.world.chunk.serialization.ChunkSerializer;
 import net.momirealms.craftengine.core.world.chunk.storage.DefaultStorageAdaptor;
 import net.momirealms.craftengine.core.world.chunk.storage.StorageAdaptor;
 import net.momirealms.craftengine.core.world.chunk.storage.WorldDataStorage;
-import net.momirealms.sparrow.nbt.CompoundTag;
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
+import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.ChunkUnloadEvent;
 import org.bukkit.event.world.WorldLoadEvent;
@@ -51,6 +50,7 @@ public class BukkitWorldManager implements WorldManager, Listener {
     private UUID lastVisitedUUID;
     private CEWorld lastVisitedWorld;
     private StorageAdaptor storageAdaptor;
+    private static final long PREFETCH_TIMEOUT = 30_000;
 
     public BukkitWorldManager(BukkitCraftEngine plugin) {
         instance = this;
@@ -108,8 +108,13 @@ public class BukkitWorldManager implements WorldManager, Listener {
         // events and tasks
         Bukkit.getPluginManager().registerEvents(this, plugin.bootstrap());
         this.tickTask = plugin.scheduler().sync().runRepeating(() -> {
+            SaveBudget saveBudget = ConfigManager.autosave() ? new SaveBudget(ConfigManager.autosaveChunksPerTick(), ConfigManager.autosaveBytesPerTick()) : null;
             for (CEWorld world : worldArray) {
                 world.tick();
+                world.discardStalePrefetchedChunks(PREFETCH_TIMEOUT);
+                if (saveBudget != null) {
+                    world.autosave(saveBudget, ConfigManager.autosaveIntervalMillis());
+                }
             }
         }, 1, 1);
 
@@ -141,8 +146,9 @@ public class BukkitWorldManager implements WorldManager, Listener {
 
         for (World world : Bukkit.getWorlds()) {
             CEWorld ceWorld = getWorld(world.getUID());
+            ceWorld.flushPendingWrites();
             for (Chunk chunk : world.getLoadedChunks()) {
-                handleChunkUnload(ceWorld, chunk);
+                handleChunkUnload(ceWorld, chunk, false);
             }
         }
         this.worlds.clear();
@@ -211,8 +217,9 @@ public class BukkitWorldManager implements WorldManager, Listener {
         } finally {
             this.worldMapLock.writeLock().unlock();
         }
+        ceWorld.flushPendingWrites();
         for (Chunk chunk : ((World) world.platformWorld()).getLoadedChunks()) {
-            handleChunkUnload(ceWorld, chunk);
+            handleChunkUnload(ceWorld, chunk, false);
         }
     }
 
@@ -252,15 +259,41 @@ public class BukkitWorldManager implements WorldManager, Listener {
         } finally {
             this.worldMapLock.readLock().unlock();
         }
-        handleChunkUnload(world, event.getChunk());
+        handleChunkUnload(world, event.getChunk(), ConfigManager.asyncChunkIO());
     }
 
-    private void handleChunkUnload(CEWorld world, Chunk chunk) {
-        ChunkPos pos = new ChunkPos(chunk.getX(), chunk.getZ());
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        if (!ConfigManager.asyncChunkIO()) return;
+        Location from = event.getFrom();
+        Location to = event.getTo();
+        int fromX = from.getBlockX() >> 4;
+        int fromZ = from.getBlockZ() >> 4;
+        int toX = to.getBlockX() >> 4;
+        int toZ = to.getBlockZ() >> 4;
+        boolean sameWorld = from.getWorld() == to.getWorld();
+        if (sameWorld && fromX == toX && fromZ == toZ) return;
+        CEWorld world = getWorld(to.getWorld());
+        if (world == null) return;
+        // read the chunks that just entered the view distance before the server loads them
+        int viewDistance = event.getPlayer().getViewDistance();
+        for (int x = toX - viewDistance; x <= toX + viewDistance; x++) {
+            for (int z = toZ - viewDistance; z <= toZ + viewDistance; z++) {
+                if (sameWorld && Math.abs(x - fromX) <= viewDistance && Math.abs(z - fromZ) <= viewDistance) continue;
+                world.prefetchChunk(new ChunkPos(x, z));
+            }
+        }
+    }
+
+    private void handleChunkUnload(CEWorld world, Chunk chunk, boolean async) {
         CEChunk ceChunk = world.getChunkAtIfLoaded(chunk.getX(), chunk.getZ());
         if (ceChunk != null) {
             try {
-                world.worldDataStorage().writeChunkTagAt(pos, ChunkSerializer.serialize(ceChunk));
+                if (async) {
+                    world.writeChunkAsync(ceChunk);
+                } else {
+                    world.writeChunk(ceChunk);
+                }
             } catch (IOException e) {
                 plugin.logger().warn("Failed to write chunk tag at " + chunk.getX() + " " + chunk.getZ(), e);
                 return;
@@ -275,17 +308,7 @@ public class BukkitWorldManager implements WorldManager, Listener {
                         CESection ceSection = ceSections[i];
                         Object section = sections[i];
                         BukkitInjector.uninjectLevelChunkSection(section);
-                        if (ceSection.statesContainer().isEmpty()) continue;
-                        for (int x = 0; x < 16; x++) {
-                            for (int z = 0; z < 16; z++) {
-                                for (int y = 0; y < 16; y++) {
-                                    ImmutableBlockState customState = ceSection.getBlockState(x, y, z);
-                                    if (!customState.isEmpty() && customState.vanillaBlockState() != null) {
-                                        FastNMS.INSTANCE.method$LevelChunkSection$setBlockState(section, x, y, z, customState.vanillaBlockState().handle(), false);
-                                    }
-                                }
-                            }
-                        }
+                        ChunkSectionUtils.restoreBlocks(ceSection, section, true);
                     }
                 }
             }
@@ -298,12 +321,7 @@ public class BukkitWorldManager implements WorldManager, Listener {
         if (ceWorld.isChunkLoaded(pos.longKey)) return;
         CEChunk ceChunk;
         try {
-            CompoundTag chunkNbt = ceWorld.worldDataStorage().readChunkTagAt(pos);
-            if (chunkNbt != null) {
-                ceChunk = ChunkSerializer.deserialize(ceWorld, pos, chunkNbt);
-            } else {
-                ceChunk = new CEChunk(ceWorld, pos);
-            }
+            ceChunk = ceWorld.readChunk(pos);
             try {
                 CESection[] ceSections = ceChunk.sections();
                 Object worldServer = FastNMS.INSTANCE.field$CraftChunk$worldServer(chunk);
@@ -314,67 +332,10 @@ public class BukkitWorldManager implements WorldManager, Listener {
                     CESection ceSection = ceSections[i];
                     Object section = sections[i];
                     if (ConfigManager.syncCustomBlocks()) {
-                        Object statesContainer = FastNMS.INSTANCE.field$LevelChunkSection$states(section);
-                        Object data = Reflections.varHandle$PalettedContainer$data.get(statesContainer);
-                        Object palette = Reflections.field$PalettedContainer$Data$palette.get(data);
-                        boolean requiresSync = false;
-                        if (Reflections.clazz$SingleValuePalette.isInstance(palette)) {
-                            Object onlyBlockState = Reflections.field$SingleValuePalette$value.get(palette);
-                            if (!BlockStateUtils.isVanillaBlock(BlockStateUtils.blockStateToId(onlyBlockState))) {
-                                requiresSync = true;
-                            }
-                        } else if (Reflections.clazz$LinearPalette.isInstance(palette)) {
-                            Object[] blockStates = (Object[]) Reflections.field$LinearPalette$values.get(palette);
-                            for (Object blockState : blockStates) {
-                                if (blockState != null) {
-                                    if (!BlockStateUtils.isVanillaBlock(BlockStateUtils.blockStateToId(blockState))) {
-                                        requiresSync = true;
-                                        break;
-                                    }
-                                }
-                            }
-                        } else if (Reflections.clazz$HashMapPalette.isInstance(palette)) {
-                            Object biMap = Reflections.field$HashMapPalette$values.get(palette);
-                            Object[] blockStates = (Object[]) Reflections.field$CrudeIncrementalIntIdentityHashBiMap$keys.get(biMap);
-                            for (Object blockState : blockStates) {
-                                if (blockState != null) {
-                                    if (!BlockStateUtils.isVanillaBlock(BlockStateUtils.blockStateToId(blockState))) {
-                                        requiresSync = true;
-                                        break;
-                                    }
-                                }
-                            }
-                        } else {
-                            requiresSync = true;
-                        }
-                        if (requiresSync) {
-                            for (int x = 0; x < 16; x++) {
-                                for (int z = 0; z < 16; z++) {
-                                    for (int y = 0; y < 16; y++) {
-                                        Object mcState = FastNMS.INSTANCE.method$LevelChunkSection$getBlockState(section, x, y, z);
-                                        int stateId = BlockStateUtils.blockStateToId(mcState);
-                                        ImmutableBlockState customState = this.plugin.blockManager().getImmutableBlockState(stateId);
-                                        if (customState != null) {
-                                            ceSection.setBlockState(x, y, z, customState);
-                                        }
-                                    }
-                                }
-                            }
-                        }
+                        ChunkSectionUtils.syncCustomBlocks(section, ceSection);
                     }
                     if (ConfigManager.restoreCustomBlocks()) {
-                        if (!ceSection.statesContainer().isEmpty()) {
-                            for (int x = 0; x < 16; x++) {
-                                for (int z = 0; z < 16; z++) {
-                                    for (int y = 0; y < 16; y++) {
-                                        ImmutableBlockState customState = ceSection.getBlockState(x, y, z);
-                                        if (!customState.isEmpty() && customState.customBlockState() != null) {
-                                            FastNMS.INSTANCE.method$LevelChunkSection$setBlockState(section, x, y, z, customState.customBlockState().handle(), false);
-                                        }
-                                    }
-                                }
-                            }
-                        }
+                        ChunkSectionUtils.restoreBlocks(ceSection, section, false);
                     }
                     BukkitInjector.injectLevelChunkSection(section, ceSection, ceWorld, new SectionPos(pos.x, ceChunk.sectionY(i), pos.z));
                 }
@@ -3,6 +3,7 @@ package net.momirealms.craftengine.core.font;
 import net.momirealms.craftengine.core.pack.Pack;
 import net.momirealms.craftengine.core.plugin.CraftEngine;
 import net.momirealms.craftengine.core.util.CharacterUtils;
+import net.momirealms.craftengine.core.util.CodepointSet;
 import net.momirealms.craftengine.core.util.Key;
 import net.momirealms.craftengine.core.util.MiscUtils;
 import net.momirealms.craftengine.core.util.PreConditions;
@@ -18,7 +19,7 @@ public abstract class AbstractImageManager implements ImageManager {
     private final HashMap<Key, Font> fonts = new HashMap<>();
                 // namespace:id image
     private final HashMap<Key, BitmapImage> images = new HashMap<>();
-    private final Set<Integer> illegalChars = new HashSet<>();
+    private final CodepointSet illegalChars = new CodepointSet();
 
     private OffsetFont offsetFont;
 
@@ -57,6 +58,11 @@ public abstract class AbstractImageManager implements ImageManager {
         return this.illegalChars.contains(codepoint);
     }
 
+    @Override
+    public String replaceIllegalCharacters(String string) {
+        return this.illegalChars.replaceAll(string, '*');
+    }
+
     @Override
     public void parseSection(Pack pack, Path path, Key id, Map<String, Object> section) {
         int height = MiscUtils.getAsInt(section.get("height"));
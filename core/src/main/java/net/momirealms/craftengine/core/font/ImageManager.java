@@ -30,6 +30,13 @@ public interface ImageManager extends Reloadable, ConfigSectionParser {
 
     boolean isIllegalCharacter(int codepoint);
 
+    /**
+     * Replaces the characters used by the default font with '*'.
+     *
+     * @return the same instance if the string doesn't contain any of them
+     */
+    String replaceIllegalCharacters(String string);
+
     Collection<Font> fontsInUse();
 
     Optional<BitmapImage> bitmapImageByCodepoint(Key font, int codepoint);
@@ -7,8 +7,11 @@ import net.momirealms.craftengine.core.util.context.ContextHolder;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.regex.Pattern;
+
 public class ItemBuildContext implements MiniMessageTextContext {
     public static final ItemBuildContext EMPTY = new ItemBuildContext(null, ContextHolder.EMPTY);
+    private static final Pattern CONTEXT_SENSITIVE_TAGS = Pattern.compile("<\\s*(papi|i18n|l10n|arg|argument)\\s*:", Pattern.CASE_INSENSITIVE);
     private final Player player;
     private final ContextHolder contexts;
     private TagResolver[] tagResolvers;
@@ -33,6 +36,16 @@ public class ItemBuildContext implements MiniMessageTextContext {
         return this.contexts;
     }
 
+    /**
+     * Checks whether a MiniMessage text uses tags resolved from the player or the context arguments
+     *
+     * @param text the MiniMessage text
+     * @return whether the text may differ between contexts
+     */
+    public static boolean isContextSensitive(String text) {
+        return CONTEXT_SENSITIVE_TAGS.matcher(text).find();
+    }
+
     @NotNull
     public TagResolver[] tagResolvers() {
         if (this.tagResolvers == null) {
@@ -19,6 +19,11 @@ public class ExternalModifier<I> implements ItemModifier<I> {
         return "external";
     }
 
+    @Override
+    public boolean isContextSensitive() {
+        return true;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public void apply(Item<I> item, ItemBuildContext context) {
@@ -8,4 +8,13 @@ public interface ItemModifier<I> {
     String name();
 
     void apply(Item<I> item, ItemBuildContext context);
+
+    /**
+     * Items only built with context-insensitive modifiers are built once and then copied.
+     *
+     * @return whether the result depends on the player or arguments of the build context
+     */
+    default boolean isContextSensitive() {
+        return false;
+    }
 }
@@ -7,9 +7,16 @@ import net.momirealms.craftengine.core.util.AdventureHelper;
 
 public class ItemNameModifier<I> implements ItemModifier<I> {
     private final String argument;
+    private final boolean contextSensitive;
 
     public ItemNameModifier(String argument) {
         this.argument = ConfigManager.nonItalic() ? "<!i>" + argument : argument;
+        this.contextSensitive = ItemBuildContext.isContextSensitive(this.argument);
+    }
+
+    @Override
+    public boolean isContextSensitive() {
+        return this.contextSensitive;
     }
 
     @Override
@@ -9,9 +9,16 @@ import java.util.List;
 
 public class LoreModifier<I> implements ItemModifier<I> {
     private final List<String> argument;
+    private final boolean contextSensitive;
 
     public LoreModifier(List<String> argument) {
         this.argument = ConfigManager.nonItalic() ? argument.stream().map(it -> "<!i>" + it).toList() : argument;
+        this.contextSensitive = this.argument.stream().anyMatch(ItemBuildContext::isContextSensitive);
+    }
+
+    @Override
+    public boolean isContextSensitive() {
+        return this.contextSensitive;
     }
 
     @Override
@@ -0,0 +1,165 @@
+package net.momirealms.craftengine.core.item.recipe;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.momirealms.craftengine.core.item.recipe.input.CraftingInput;
+import net.momirealms.craftengine.core.item.recipe.input.RecipeInput;
+import net.momirealms.craftengine.core.item.recipe.input.SingleItemInput;
+import net.momirealms.craftengine.core.item.recipe.input.SmithingInput;
+import net.momirealms.craftengine.core.registry.Holder;
+import net.momirealms.craftengine.core.util.Key;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Looks up the recipes of one type by the items of the input instead of testing every recipe.
+ * <p>
+ * Every ingredient in use has to be present in a matching input, so each recipe is indexed under the items
+ * of its most selective ingredient. A lookup then only tests the recipes indexed under the items of the input.
+ * Shaped recipes are additionally bucketed by the size of their pattern.
+ * If several recipes match, the one added first wins, just like a linear scan.
+ */
+public class RecipeIndex<T> {
+    private final Int2ObjectMap<Map<Holder<Key>, List<Entry<T>>>> byShape = new Int2ObjectOpenHashMap<>();
+    private final List<Entry<T>> unindexed = new ArrayList<>();
+    private final List<Recipe<T>> all = new ArrayList<>();
+
+    public void add(Recipe<T> recipe) {
+        Entry<T> entry = new Entry<>(recipe, this.all.size());
+        this.all.add(recipe);
+        Ingredient<T> keyIngredient = null;
+        for (Ingredient<T> ingredient : recipe.ingredientsInUse()) {
+            if (ingredient == null || ingredient.isEmpty()) continue;
+            if (keyIngredient == null || ingredient.items().size() < keyIngredient.items().size()) {
+                keyIngredient = ingredient;
+            }
+        }
+        if (keyIngredient == null) {
+            this.unindexed.add(entry);
+            return;
+        }
+        Map<Holder<Key>, List<Entry<T>>> byIngredient = this.byShape.computeIfAbsent(shapeOf(recipe), k -> new Reference2ObjectOpenHashMap<>());
+        for (Holder<Key> item : keyIngredient.items()) {
+            byIngredient.computeIfAbsent(item, k -> new ArrayList<>(1)).add(entry);
+        }
+    }
+
+    public void clear() {
+        this.byShape.clear();
+        this.unindexed.clear();
+        this.all.clear();
+    }
+
+    @Nullable
+    public Recipe<T> find(RecipeInput input) {
+        List<OptimizedIDItem<T>> items = itemsOf(input);
+        if (items == null) {
+            // unknown input type, fall back to testing every recipe
+            for (Recipe<T> recipe : this.all) {
+                if (recipe.matches(input)) {
+                    return recipe;
+                }
+            }
+            return null;
+        }
+        Entry<T> best = null;
+        for (Entry<T> entry : this.unindexed) {
+            if (entry.recipe.matches(input)) {
+                best = entry;
+                break;
+            }
+        }
+        int shape = shapeOf(input);
+        best = this.find(this.byShape.get(shape), input, items, best);
+        if (shape != 0) {
+            // recipes that don't care about the shape of the input
+            best = this.find(this.byShape.get(0), input, items, best);
+        }
+        return best == null ? null : best.recipe;
+    }
+
+    @Nullable
+    private Entry<T> find(@Nullable Map<Holder<Key>, List<Entry<T>>> byIngredient, RecipeInput input, List<OptimizedIDItem<T>> items, @Nullable Entry<T> best) {
+        if (byIngredient == null) return best;
+        for (int i = 0, n = items.size(); i < n; i++) {
+            Holder<Key> id = items.get(i).id();
+            // the same item may appear in several slots
+            if (isDuplicate(items, i, id)) continue;
+            List<Entry<T>> candidates = byIngredient.get(id);
+            if (candidates == null) continue;
+            for (Entry<T> candidate : candidates) {
+                if (best != null && candidate.order >= best.order) break;
+                if (candidate.recipe.matches(input)) {
+                    best = candidate;
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static <T> boolean isDuplicate(List<OptimizedIDItem<T>> items, int index, Holder<Key> id) {
+        for (int i = 0; i < index; i++) {
+            if (items.get(i).id() == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int shapeOf(Recipe<?> recipe) {
+        if (recipe instanceof CustomShapedRecipe<?> shapedRecipe) {
+            CustomShapedRecipe.ParsedPattern<?> pattern = shapedRecipe.parsedPattern();
+            return shapeOf(pattern.width(), pattern.height());
+        }
+        return 0;
+    }
+
+    private static int shapeOf(RecipeInput input) {
+        if (input instanceof CraftingInput<?> craftingInput) {
+            return shapeOf(craftingInput.width(), craftingInput.height());
+        }
+        return 0;
+    }
+
+    private static int shapeOf(int width, int height) {
+        return width << 16 | height;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private List<OptimizedIDItem<T>> itemsOf(RecipeInput input) {
+        if (input instanceof CraftingInput<?> craftingInput) {
+            List<OptimizedIDItem<T>> items = new ArrayList<>(craftingInput.size());
+            for (int i = 0, n = craftingInput.size(); i < n; i++) {
+                OptimizedIDItem<T> item = (OptimizedIDItem<T>) craftingInput.getItem(i);
+                if (!item.isEmpty()) {
+                    items.add(item);
+                }
+            }
+            return items;
+        } else if (input instanceof SingleItemInput<?> singleItemInput) {
+            return singleItemInput.input() == null ? List.of() : List.of((OptimizedIDItem<T>) singleItemInput.input());
+        } else if (input instanceof SmithingInput<?> smithingInput) {
+            List<OptimizedIDItem<T>> items = new ArrayList<>(3);
+            addIfPresent(items, (OptimizedIDItem<T>) smithingInput.base());
+            addIfPresent(items, (OptimizedIDItem<T>) smithingInput.template());
+            addIfPresent(items, (OptimizedIDItem<T>) smithingInput.addition());
+            return items;
+        }
+        return null;
+    }
+
+    private static <T> void addIfPresent(List<OptimizedIDItem<T>> items, @Nullable OptimizedIDItem<T> item) {
+        if (item != null && !item.isEmpty()) {
+            items.add(item);
+        }
+    }
+
+    private record Entry<T>(Recipe<T> recipe, int order) {
+    }
+}
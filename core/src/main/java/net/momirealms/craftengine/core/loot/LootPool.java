@@ -1,6 +1,5 @@
 package net.momirealms.craftengine.core.loot;
 
-import com.google.common.collect.Lists;
 import net.momirealms.craftengine.core.item.Item;
 import net.momirealms.craftengine.core.loot.condition.LootCondition;
 import net.momirealms.craftengine.core.loot.condition.LootConditions;
@@ -9,9 +8,10 @@ import net.momirealms.craftengine.core.loot.entry.LootEntryContainer;
 import net.momirealms.craftengine.core.loot.function.LootFunction;
 import net.momirealms.craftengine.core.loot.function.LootFunctions;
 import net.momirealms.craftengine.core.loot.number.NumberProvider;
+import net.momirealms.craftengine.core.util.AliasTable;
 import net.momirealms.craftengine.core.util.MCUtils;
-import org.apache.commons.lang3.mutable.MutableInt;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.function.BiFunction;
@@ -26,7 +26,12 @@ public class LootPool<T> {
     private final BiFunction<Item<T>, LootContext, Item<T>> compositeFunction;
     private final NumberProvider rolls;
     private final NumberProvider bonusRolls;
+    private final LootEntryContainer<T>[] containerArray;
+    // not null if every container always expands to the same entry, then only the weights depend on the context
+    private final LootEntry<T>[] staticEntries;
+    private volatile StaticChoices<T> staticChoices;
 
+    @SuppressWarnings("unchecked")
     public LootPool(List<LootEntryContainer<T>> entryContainers, List<LootCondition> conditions, List<LootFunction<T>> functions, NumberProvider rolls, NumberProvider bonusRolls) {
         this.entryContainers = entryContainers;
         this.conditions = conditions;
@@ -35,57 +40,147 @@ public class LootPool<T> {
         this.bonusRolls = bonusRolls;
         this.compositeCondition = LootConditions.andConditions(conditions);
         this.compositeFunction = LootFunctions.compose(functions);
+        this.containerArray = entryContainers.toArray(new LootEntryContainer[0]);
+        LootEntry<T>[] staticEntries = new LootEntry[this.containerArray.length];
+        for (int i = 0; i < staticEntries.length; i++) {
+            staticEntries[i] = this.containerArray[i].staticEntry();
+            if (staticEntries[i] == null) {
+                staticEntries = null;
+                break;
+            }
+        }
+        this.staticEntries = staticEntries;
     }
 
     public void addRandomItems(Consumer<Item<T>> lootConsumer, LootContext context) {
-        for (LootCondition condition : this.conditions) {
-            if (!condition.test(context)) {
-                return;
-            }
+        if (!this.compositeCondition.test(context)) {
+            return;
+        }
+        Consumer<Item<T>> consumer = this.functions.isEmpty() ? lootConsumer : LootFunction.decorate(this.compositeFunction, lootConsumer, context);
+        int i = this.rolls.getInt(context) + MCUtils.fastFloor(this.bonusRolls.getFloat(context) * context.luck());
+        if (i <= 0) {
+            return;
         }
-        if (this.compositeCondition.test(context)) {
-            Consumer<Item<T>> consumer = LootFunction.decorate(this.compositeFunction, lootConsumer, context);
-            int i = this.rolls.getInt(context) + MCUtils.fastFloor(this.bonusRolls.getFloat(context) * context.luck());
+        if (this.staticEntries != null) {
+            StaticChoices<T> choices = this.staticChoices(context.luck());
             for (int j = 0; j < i; ++j) {
-                this.addRandomItem(createFunctionApplier(consumer, context), context);
+                choices.addRandomItem(consumer, context);
+            }
+        } else {
+            DynamicChoices<T> choices = new DynamicChoices<>(this.containerArray.length, context.luck());
+            for (int j = 0; j < i; ++j) {
+                choices.clear();
+                for (LootEntryContainer<T> container : this.containerArray) {
+                    container.expand(context, choices);
+                }
+                choices.addRandomItem(consumer, context);
             }
         }
     }
 
-    private Consumer<Item<T>> createFunctionApplier(Consumer<Item<T>> lootConsumer, LootContext context) {
-        return (item -> {
-            for (LootFunction<T> function : this.functions) {
-                function.apply(item, context);
-            }
-            lootConsumer.accept(item);
-        });
+    // the weights only depend on the luck, which is the same for almost every evaluation, so the last table is kept
+    private StaticChoices<T> staticChoices(float luck) {
+        StaticChoices<T> choices = this.staticChoices;
+        if (choices == null || choices.luck != luck) {
+            choices = StaticChoices.create(this.staticEntries, luck);
+            this.staticChoices = choices;
+        }
+        return choices;
     }
 
-    private void addRandomItem(Consumer<Item<T>> lootConsumer, LootContext context) {
-        Random randomSource = context.randomSource();
-        List<LootEntry<T>> list = Lists.newArrayList();
-        MutableInt mutableInt = new MutableInt();
-        for (LootEntryContainer<T> lootPoolEntryContainer : this.entryContainers) {
-            lootPoolEntryContainer.expand(context, (choice) -> {
-                int i = choice.getWeight(context.luck());
-                if (i > 0) {
-                    list.add(choice);
-                    mutableInt.add(i);
+    private static class StaticChoices<T> {
+        private final float luck;
+        private final LootEntry<T>[] entries;
+        private final AliasTable table;
+
+        private StaticChoices(float luck, LootEntry<T>[] entries, AliasTable table) {
+            this.luck = luck;
+            this.entries = entries;
+            this.table = table;
+        }
+
+        private static <T> StaticChoices<T> create(LootEntry<T>[] allEntries, float luck) {
+            LootEntry<T>[] entries = Arrays.copyOf(allEntries, allEntries.length);
+            int[] weights = new int[allEntries.length];
+            int size = 0;
+            long total = 0;
+            for (LootEntry<T> entry : allEntries) {
+                int weight = entry.getWeight(luck);
+                if (weight > 0) {
+                    entries[size] = entry;
+                    weights[size] = weight;
+                    total += weight;
+                    size++;
                 }
-            });
+            }
+            // a total weight that doesn't fit in an int can't be rolled, so nothing is picked
+            if (total > Integer.MAX_VALUE) {
+                size = 0;
+            }
+            return new StaticChoices<>(luck, Arrays.copyOf(entries, size), size > 1 ? AliasTable.of(Arrays.copyOf(weights, size)) : null);
+        }
+
+        private void addRandomItem(Consumer<Item<T>> lootConsumer, LootContext context) {
+            if (this.table != null) {
+                this.entries[this.table.sample(context.randomSource())].createItem(lootConsumer, context);
+            } else if (this.entries.length == 1) {
+                this.entries[0].createItem(lootConsumer, context);
+            }
+        }
+    }
+
+    // reused by all rolls of one evaluation
+    private static class DynamicChoices<T> implements Consumer<LootEntry<T>> {
+        private final float luck;
+        private LootEntry<T>[] entries;
+        private int[] weights;
+        private int size;
+        private int totalWeight;
+
+        @SuppressWarnings("unchecked")
+        private DynamicChoices(int expectedSize, float luck) {
+            this.luck = luck;
+            this.entries = new LootEntry[Math.max(expectedSize, 1)];
+            this.weights = new int[this.entries.length];
         }
-        int i = list.size();
-        if (mutableInt.intValue() != 0 && i != 0) {
-            if (i == 1) {
-                list.get(0).createItem(lootConsumer, context);
-            } else {
-                int j = randomSource.nextInt(mutableInt.intValue());
-                for (LootEntry<T> loot : list) {
-                    j -= loot.getWeight(context.luck());
-                    if (j < 0) {
-                        loot.createItem(lootConsumer, context);
-                        return;
-                    }
+
+        private void clear() {
+            Arrays.fill(this.entries, 0, this.size, null);
+            this.size = 0;
+            this.totalWeight = 0;
+        }
+
+        @Override
+        public void accept(LootEntry<T> choice) {
+            int weight = choice.getWeight(this.luck);
+            if (weight <= 0) {
+                return;
+            }
+            if (this.size == this.entries.length) {
+                this.entries = Arrays.copyOf(this.entries, this.size * 2);
+                this.weights = Arrays.copyOf(this.weights, this.size * 2);
+            }
+            this.entries[this.size] = choice;
+            this.weights[this.size] = weight;
+            this.size++;
+            this.totalWeight += weight;
+        }
+
+        private void addRandomItem(Consumer<Item<T>> lootConsumer, LootContext context) {
+            if (this.size == 0) {
+                return;
+            }
+            if (this.size == 1) {
+                this.entries[0].createItem(lootConsumer, context);
+                return;
+            }
+            Random randomSource = context.randomSource();
+            int j = randomSource.nextInt(this.totalWeight);
+            for (int i = 0; i < this.size; i++) {
+                j -= this.weights[i];
+                if (j < 0) {
+                    this.entries[i].createItem(lootConsumer, context);
+                    return;
                 }
             }
         }
@@ -27,11 +27,14 @@ public class LootTable<T> {
     private final List<LootPool<T>> pools;
     private final List<LootFunction<T>> functions;
     private final BiFunction<Item<T>, LootContext, Item<T>> compositeFunction;
+    private final LootPool<T>[] poolArray;
 
+    @SuppressWarnings("unchecked")
     public LootTable(List<LootPool<T>> pools, List<LootFunction<T>> functions) {
         this.pools = pools;
         this.functions = functions;
         this.compositeFunction = LootFunctions.compose(functions);
+        this.poolArray = pools.toArray(new LootPool[0]);
     }
 
     @Nullable
@@ -72,16 +75,7 @@ public class LootTable<T> {
     }
 
     public void getRandomItems(LootContext context, Consumer<Item<T>> lootConsumer) {
-        this.getRandomItemsRaw(context, createFunctionApplier(createStackSplitter(lootConsumer), context));
-    }
-
-    private Consumer<Item<T>> createFunctionApplier(Consumer<Item<T>> lootConsumer, LootContext context) {
-        return (item -> {
-            for (LootFunction<T> function : this.functions) {
-                function.apply(item, context);
-            }
-            lootConsumer.accept(item);
-        });
+        this.getRandomItemsRaw(context, createStackSplitter(lootConsumer));
     }
 
     private Consumer<Item<T>> createStackSplitter(Consumer<Item<T>> consumer) {
@@ -100,8 +94,8 @@ public class LootTable<T> {
     }
 
     public void getRandomItemsRaw(LootContext context, Consumer<Item<T>> lootConsumer) {
-        Consumer<Item<T>> consumer = LootFunction.decorate(this.compositeFunction, lootConsumer, context);
-        for (LootPool<T> pool : this.pools) {
+        Consumer<Item<T>> consumer = this.functions.isEmpty() ? lootConsumer : LootFunction.decorate(this.compositeFunction, lootConsumer, context);
+        for (LootPool<T> pool : this.poolArray) {
             pool.addRandomItems(consumer, context);
         }
     }
@@ -42,6 +42,11 @@ public abstract class AbstractSingleLootEntryContainer<T> extends AbstractLootEn
         }
     }
 
+    @Override
+    public LootEntry<T> staticEntry() {
+        return super.conditions.isEmpty() ? this.entry : null;
+    }
+
     public int weight() {
         return weight;
     }
@@ -1,6 +1,7 @@
 package net.momirealms.craftengine.core.loot.entry;
 
 import net.momirealms.craftengine.core.loot.LootContext;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.function.Consumer;
 
@@ -16,6 +17,14 @@ public interface LootEntryContainer<T> {
 
     boolean expand(LootContext context, Consumer<LootEntry<T>> choiceConsumer);
 
+    /**
+     * @return the only entry this container expands to if it does so regardless of the context, otherwise null
+     */
+    @Nullable
+    default LootEntry<T> staticEntry() {
+        return null;
+    }
+
     default LootEntryContainer<T> and(LootEntryContainer<T> other) {
         return (context, lootChoiceExpander) -> this.expand(context, lootChoiceExpander) && other.expand(context, lootChoiceExpander);
     }
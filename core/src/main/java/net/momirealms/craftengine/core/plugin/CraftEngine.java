@@ -109,6 +109,7 @@ public abstract class CraftEngine implements Plugin {
             this.itemBrowserManager.delayedLoad();
             this.soundManager.delayedLoad();
             this.imageManager.delayedLoad();
+            this.translationManager.delayedLoad();
             if (ConfigManager.debug()) {
                 this.debugger = (s) -> logger.info("[Debug] " + s.get());
             } else {
@@ -178,6 +179,7 @@ public abstract class CraftEngine implements Plugin {
                 Dependencies.SLF4J_API, Dependencies.SLF4J_SIMPLE,
                 Dependencies.COMMONS_IO,
                 Dependencies.ZSTD,
+                Dependencies.LZ4,
                 Dependencies.BYTE_BUDDY,
                 Dependencies.SNAKE_YAML,
                 Dependencies.BOOSTED_YAML,
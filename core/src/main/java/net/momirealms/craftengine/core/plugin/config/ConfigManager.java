@@ -1,6 +1,7 @@
 package net.momirealms.craftengine.core.plugin.config;
 
 import dev.dejvokep.boostedyaml.YamlDocument;
+import dev.dejvokep.boostedyaml.block.implementation.Section;
 import dev.dejvokep.boostedyaml.dvs.versioning.BasicVersioning;
 import dev.dejvokep.boostedyaml.libs.org.snakeyaml.engine.v2.common.ScalarStyle;
 import dev.dejvokep.boostedyaml.libs.org.snakeyaml.engine.v2.nodes.Tag;
@@ -20,6 +21,8 @@ import net.momirealms.craftengine.core.plugin.logger.filter.DisconnectLogFilter;
 import net.momirealms.craftengine.core.util.AdventureHelper;
 import net.momirealms.craftengine.core.util.MiscUtils;
 import net.momirealms.craftengine.core.util.ReflectionUtils;
+import net.momirealms.craftengine.core.world.chunk.storage.CompressionMethod;
+import net.momirealms.craftengine.core.world.chunk.storage.RegionReadMode;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -93,6 +96,7 @@ public class ConfigManager implements Reloadable {
     protected UUID resource_pack$external_host$uuid;
 
     protected int performance$max_block_chain_update_limit;
+    protected int performance$remapped_chunk_cache_size;
 
     protected boolean light_system$force_update_light;
     protected boolean light_system$enable;
@@ -100,12 +104,25 @@ public class ConfigManager implements Reloadable {
     protected boolean chunk_system$restore_vanilla_blocks_on_chunk_unload;
     protected boolean chunk_system$restore_custom_blocks_on_chunk_load;
     protected boolean chunk_system$sync_custom_blocks_on_chunk_load;
+    protected boolean chunk_system$async_io$enable;
+    protected int chunk_system$async_io$max_pending_writes;
+    protected int chunk_system$async_io$max_prefetched_chunks;
+    protected boolean chunk_system$autosave$enable;
+    protected int chunk_system$autosave$interval;
+    protected int chunk_system$autosave$chunks_per_tick;
+    protected long chunk_system$autosave$bytes_per_tick;
+    protected CompressionMethod chunk_system$compression$method;
+    protected Map<String, CompressionMethod> chunk_system$compression$per_world;
+    protected RegionReadMode chunk_system$region_file$read_mode;
+    protected int chunk_system$region_file$max_open_files;
 
     protected boolean furniture$remove_invalid_furniture_on_chunk_load$enable;
     protected Set<String> furniture$remove_invalid_furniture_on_chunk_load$list;
     protected boolean furniture$hide_base_entity;
 
     protected boolean block$sound_system$enable;
+    protected int block$mass_break$merge_radius;
+    protected int block$mass_break$max_sounds;
     protected boolean recipe$enable;
 
     protected boolean item$non_italic_tag;
@@ -246,6 +263,7 @@ public class ConfigManager implements Reloadable {
 
         // performance
         performance$max_block_chain_update_limit = config.getInt("performance.max-block-chain-update-limit", 64);
+        performance$remapped_chunk_cache_size = config.getInt("performance.remapped-chunk-cache-size", 64);
 
         // light
         light_system$force_update_light = config.getBoolean("light-system.force-update-light", false);
@@ -255,6 +273,23 @@ public class ConfigManager implements Reloadable {
         chunk_system$restore_vanilla_blocks_on_chunk_unload = config.getBoolean("chunk-system.restore-vanilla-blocks-on-chunk-unload", true);
         chunk_system$restore_custom_blocks_on_chunk_load = config.getBoolean("chunk-system.restore-custom-blocks-on-chunk-load", true);
         chunk_system$sync_custom_blocks_on_chunk_load = config.getBoolean("chunk-system.sync-custom-blocks-on-chunk-load", false);
+        chunk_system$async_io$enable = config.getBoolean("chunk-system.async-io.enable", true);
+        chunk_system$async_io$max_pending_writes = config.getInt("chunk-system.async-io.max-pending-writes", 1024);
+        chunk_system$async_io$max_prefetched_chunks = config.getInt("chunk-system.async-io.max-prefetched-chunks", 4096);
+        chunk_system$autosave$enable = config.getBoolean("chunk-system.autosave.enable", true);
+        chunk_system$autosave$interval = config.getInt("chunk-system.autosave.interval", 300);
+        chunk_system$autosave$chunks_per_tick = config.getInt("chunk-system.autosave.chunks-per-tick", 8);
+        chunk_system$autosave$bytes_per_tick = config.getLong("chunk-system.autosave.bytes-per-tick", 262144L);
+        chunk_system$compression$method = getCompressionMethod(config.getString("chunk-system.compression.method", "gzip"));
+        chunk_system$compression$per_world = new HashMap<>();
+        Section perWorldCompression = config.getSection("chunk-system.compression.per-world");
+        if (perWorldCompression != null) {
+            for (Map.Entry<String, Object> entry : perWorldCompression.getStringRouteMappedValues(false).entrySet()) {
+                chunk_system$compression$per_world.put(entry.getKey(), getCompressionMethod(entry.getValue().toString()));
+            }
+        }
+        chunk_system$region_file$read_mode = getRegionReadMode(config.getString("chunk-system.region-file.read-mode", "pooled"));
+        chunk_system$region_file$max_open_files = config.getInt("chunk-system.region-file.max-open-files", 256);
 
         // furniture
         furniture$remove_invalid_furniture_on_chunk_load$enable = config.getBoolean("furniture.remove-invalid-furniture-on-chunk-load.enable", false);
@@ -263,6 +298,8 @@ public class ConfigManager implements Reloadable {
 
         // block
         block$sound_system$enable = config.getBoolean("block.sound-system.enable", true);
+        block$mass_break$merge_radius = config.getInt("block.mass-break.merge-radius", 2);
+        block$mass_break$max_sounds = config.getInt("block.mass-break.max-sounds", 8);
 
         // recipe
         recipe$enable = config.getBoolean("recipe.enable", true);
@@ -286,6 +323,24 @@ public class ConfigManager implements Reloadable {
         }
     }
 
+    private CompressionMethod getCompressionMethod(String name) {
+        CompressionMethod method = CompressionMethod.fromName(name);
+        if (method == null) {
+            this.plugin.logger().warn("Unknown compression method: " + name);
+            return CompressionMethod.GZIP;
+        }
+        return method;
+    }
+
+    private RegionReadMode getRegionReadMode(String name) {
+        RegionReadMode mode = RegionReadMode.fromName(name);
+        if (mode == null) {
+            this.plugin.logger().warn("Unknown region file read mode: " + name);
+            return RegionReadMode.POOLED;
+        }
+        return mode;
+    }
+
     private static float getVersion(String version) {
         if (version.equalsIgnoreCase("LATEST")) {
             version = PluginProperties.getValue("latest-version");
@@ -353,6 +408,14 @@ public class ConfigManager implements Reloadable {
         return instance.block$sound_system$enable;
     }
 
+    public static int massBreakMergeRadius() {
+        return instance.block$mass_break$merge_radius;
+    }
+
+    public static int massBreakMaxSounds() {
+        return instance.block$mass_break$max_sounds;
+    }
+
     public static boolean enableRecipeSystem() {
         return instance.recipe$enable;
     }
@@ -377,6 +440,50 @@ public class ConfigManager implements Reloadable {
         return instance.chunk_system$sync_custom_blocks_on_chunk_load;
     }
 
+    public static boolean asyncChunkIO() {
+        return instance.chunk_system$async_io$enable;
+    }
+
+    public static int maxPendingChunkWrites() {
+        return instance.chunk_system$async_io$max_pending_writes;
+    }
+
+    public static long remappedChunkCacheBytes() {
+        return instance.performance$remapped_chunk_cache_size * 1024L * 1024L;
+    }
+
+    public static int maxPrefetchedChunks() {
+        return instance.chunk_system$async_io$max_prefetched_chunks;
+    }
+
+    public static boolean autosave() {
+        return instance.chunk_system$autosave$enable;
+    }
+
+    public static long autosaveIntervalMillis() {
+        return instance.chunk_system$autosave$interval * 1000L;
+    }
+
+    public static int autosaveChunksPerTick() {
+        return instance.chunk_system$autosave$chunks_per_tick;
+    }
+
+    public static long autosaveBytesPerTick() {
+        return instance.chunk_system$autosave$bytes_per_tick;
+    }
+
+    public static CompressionMethod compressionMethod(String worldName) {
+        return instance.chunk_system$compression$per_world.getOrDefault(worldName, instance.chunk_system$compression$method);
+    }
+
+    public static RegionReadMode regionReadMode() {
+        return instance.chunk_system$region_file$read_mode;
+    }
+
+    public static int maxOpenRegionFiles() {
+        return instance.chunk_system$region_file$max_open_files;
+    }
+
     public static List<String> foldersToMerge() {
         return instance.resource_pack$merge_external_folders;
     }
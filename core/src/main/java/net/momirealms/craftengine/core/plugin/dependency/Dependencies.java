@@ -146,6 +146,13 @@ public class Dependencies {
             "zstd-jni",
             Collections.emptyList()
     );
+    public static final Dependency LZ4 = new Dependency(
+            "lz4-java",
+            "org.lz4",
+            "lz4-java",
+            "lz4-java",
+            Collections.emptyList()
+    );
     public static final Dependency SLF4J_API = new Dependency(
             "slf4j-api",
             "org.slf4j",
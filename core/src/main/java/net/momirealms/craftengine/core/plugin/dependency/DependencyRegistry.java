@@ -8,7 +8,7 @@ import java.util.stream.Stream;
 
 public class DependencyRegistry {
     private static final Set<String> DO_NOT_AUTO_LOAD = Stream.of(
-            Dependencies.ASM, Dependencies.ASM_COMMONS, Dependencies.JAR_RELOCATOR, Dependencies.ZSTD
+            Dependencies.ASM, Dependencies.ASM_COMMONS, Dependencies.JAR_RELOCATOR
     ).map(Dependency::id).collect(Collectors.toSet());
 
     private static final String GROUP_ID = "net.momirealms";
@@ -25,6 +25,11 @@ public interface MiniMessageTranslationRegistry extends Translator {
 
     void defaultLocale(@NotNull Locale defaultLocale);
 
+    /**
+     * Drops the parsed translations, for example after the images used by them have been reloaded.
+     */
+    void clearCache();
+
     default void registerAll(final @NotNull Locale locale, final @NotNull Map<String, String> bundle) {
         IllegalArgumentException firstError = null;
         int errorCount = 0;
@@ -3,8 +3,15 @@ package net.momirealms.craftengine.core.plugin.locale;
 import net.kyori.adventure.internal.Internals;
 import net.kyori.adventure.key.Key;
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.ComponentLike;
 import net.kyori.adventure.text.TranslatableComponent;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.minimessage.Context;
 import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.ParsingException;
+import net.kyori.adventure.text.minimessage.tag.Tag;
+import net.kyori.adventure.text.minimessage.tag.resolver.ArgumentQueue;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
 import net.kyori.adventure.util.TriState;
 import net.kyori.examination.Examinable;
 import net.kyori.examination.ExaminableProperty;
@@ -15,6 +22,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
@@ -24,6 +33,8 @@ import java.util.stream.Stream;
 import static java.util.Objects.requireNonNull;
 
 public class MiniMessageTranslationRegistryImpl implements Examinable, MiniMessageTranslationRegistry {
+    // translatable components with this key prefix stand in for the arguments of a parsed format
+    private static final String ARGUMENT_SLOT_PREFIX = "\u0000craftengine:argument:";
     private final Key name;
     private final Map<String, Translation> translations = new ConcurrentHashMap<>();
     private Locale defaultLocale = Locale.US;
@@ -66,18 +77,23 @@ public class MiniMessageTranslationRegistryImpl implements Examinable, MiniMessa
         if (translation == null) {
             return null;
         }
-        String miniMessageString = translation.translate(locale);
-        if (miniMessageString == null) {
+        ParsedFormat format = translation.parsed(locale);
+        if (format == null) {
             return null;
         }
-        if (miniMessageString.isEmpty()) {
+        if (format.format().isEmpty()) {
             return Component.empty();
         }
         final Component resultingComponent;
-        if (component.arguments().isEmpty()) {
-            resultingComponent = this.miniMessage.deserialize(miniMessageString, ShiftTag.INSTANCE, ImageTag.INSTANCE);
+        List<? extends ComponentLike> arguments = component.arguments();
+        if (format.slotCount() == 0) {
+            resultingComponent = format.component();
+        } else if (format.reusable() && format.slotCount() <= arguments.size()) {
+            resultingComponent = fillSlots(format.component(), arguments);
+        } else if (arguments.isEmpty()) {
+            resultingComponent = this.miniMessage.deserialize(format.format(), ShiftTag.INSTANCE, ImageTag.INSTANCE);
         } else {
-            resultingComponent = this.miniMessage.deserialize(miniMessageString, new IndexedArgumentTag(component.arguments()), ShiftTag.INSTANCE, ImageTag.INSTANCE);
+            resultingComponent = this.miniMessage.deserialize(format.format(), new IndexedArgumentTag(arguments), ShiftTag.INSTANCE, ImageTag.INSTANCE);
         }
         if (component.children().isEmpty()) {
             return resultingComponent;
@@ -86,6 +102,67 @@ public class MiniMessageTranslationRegistryImpl implements Examinable, MiniMessa
         }
     }
 
+    @Override
+    public void clearCache() {
+        for (Translation translation : this.translations.values()) {
+            translation.parsed.clear();
+        }
+    }
+
+    private ParsedFormat parse(String format) {
+        ArgumentSlotTag slots = new ArgumentSlotTag();
+        Component component = this.miniMessage.deserialize(format, slots, ShiftTag.INSTANCE, ImageTag.INSTANCE);
+        // slots that ended up somewhere else than the component tree, like in a hover event, can't be filled afterwards
+        boolean reusable = slots.inserted == countSlots(component);
+        return new ParsedFormat(format, component, slots.slotCount, reusable);
+    }
+
+    private static int countSlots(Component component) {
+        int count = argumentSlot(component) >= 0 ? 1 : 0;
+        for (Component child : component.children()) {
+            count += countSlots(child);
+        }
+        return count;
+    }
+
+    private static int argumentSlot(Component component) {
+        if (component instanceof TranslatableComponent translatable && translatable.key().startsWith(ARGUMENT_SLOT_PREFIX)) {
+            return Integer.parseInt(translatable.key(), ARGUMENT_SLOT_PREFIX.length(), translatable.key().length(), 10);
+        }
+        return -1;
+    }
+
+    private static Component fillSlots(Component component, List<? extends ComponentLike> arguments) {
+        List<Component> children = component.children();
+        List<Component> newChildren = children;
+        for (int i = 0, size = children.size(); i < size; i++) {
+            Component child = children.get(i);
+            Component newChild = fillSlots(child, arguments);
+            if (newChild != child) {
+                if (newChildren == children) {
+                    newChildren = new ArrayList<>(children);
+                }
+                newChildren.set(i, newChild);
+            }
+        }
+        int slot = argumentSlot(component);
+        if (slot < 0) {
+            return newChildren == children ? component : component.children(newChildren);
+        }
+        // same as an inserting tag, what follows the argument becomes its children
+        Component argument = arguments.get(slot).asComponent();
+        if (!newChildren.isEmpty()) {
+            List<Component> argumentChildren = new ArrayList<>(argument.children().size() + newChildren.size());
+            argumentChildren.addAll(argument.children());
+            argumentChildren.addAll(newChildren);
+            argument = argument.children(argumentChildren);
+        }
+        if (!component.style().isEmpty()) {
+            argument = argument.style(argument.style().merge(component.style(), Style.Merge.Strategy.IF_ABSENT_ON_TARGET));
+        }
+        return argument;
+    }
+
     @Override
     public String miniMessageTranslation(@NotNull String key, @NotNull Locale locale) {
         Translation translation = translations.get(key);
@@ -135,16 +212,34 @@ public class MiniMessageTranslationRegistryImpl implements Examinable, MiniMessa
     final class Translation implements Examinable {
         private final String key;
         private final Map<Locale, String> formats;
+        // parsed formats by requested locale, so the fallback is only resolved once
+        private final Map<Locale, ParsedFormat> parsed;
 
         Translation(final @NotNull String key) {
             this.key = requireNonNull(key, "translation key");
             this.formats = new ConcurrentHashMap<>();
+            this.parsed = new ConcurrentHashMap<>();
         }
 
         void register(final @NotNull Locale locale, final @NotNull String format) {
             if (this.formats.putIfAbsent(requireNonNull(locale, "locale"), requireNonNull(format, "message format")) != null) {
                 throw new IllegalArgumentException(String.format("Translation already exists: %s for %s", this.key, locale));
             }
+            this.parsed.clear();
+        }
+
+        @Nullable ParsedFormat parsed(final @NotNull Locale locale) {
+            ParsedFormat parsedFormat = this.parsed.get(locale);
+            if (parsedFormat != null) {
+                return parsedFormat;
+            }
+            String format = this.translate(locale);
+            if (format == null) {
+                return null;
+            }
+            parsedFormat = MiniMessageTranslationRegistryImpl.this.parse(format);
+            this.parsed.put(locale, parsedFormat);
+            return parsedFormat;
         }
 
         @Nullable String translate(final @NotNull Locale locale) {
@@ -184,4 +279,35 @@ public class MiniMessageTranslationRegistryImpl implements Examinable, MiniMessa
             return Internals.toString(this);
         }
     }
+
+    /**
+     * @param slotCount the highest argument index used by the format plus one
+     * @param reusable whether every argument slot can be filled in the parsed component
+     */
+    private record ParsedFormat(String format, Component component, int slotCount, boolean reusable) {
+    }
+
+    private static final class ArgumentSlotTag implements TagResolver {
+        private int slotCount;
+        private int inserted;
+
+        @Override
+        public @Nullable Tag resolve(@NotNull String name, @NotNull ArgumentQueue arguments, @NotNull Context ctx) throws ParsingException {
+            if (!has(name)) {
+                return null;
+            }
+            final int index = arguments.popOr("No argument number provided").asInt().orElseThrow(() -> ctx.newException("Invalid argument number", arguments));
+            if (index < 0) {
+                throw ctx.newException("Invalid argument number", arguments);
+            }
+            this.slotCount = Math.max(this.slotCount, index + 1);
+            this.inserted++;
+            return Tag.inserting(Component.translatable(ARGUMENT_SLOT_PREFIX + index));
+        }
+
+        @Override
+        public boolean has(@NotNull String name) {
+            return name.equals("argument") || name.equals("arg");
+        }
+    }
 }
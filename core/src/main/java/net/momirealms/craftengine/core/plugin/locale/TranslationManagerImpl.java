@@ -85,6 +85,12 @@ public class TranslationManagerImpl implements TranslationManager {
         this.setSelectedLocale();
     }
 
+    @Override
+    public void delayedLoad() {
+        // the parsed translations may contain images that were not loaded yet
+        this.registry.clearCache();
+    }
+
     private void setSelectedLocale() {
         if (this.forcedLocale != null) {
             this.selectedLocale = forcedLocale;
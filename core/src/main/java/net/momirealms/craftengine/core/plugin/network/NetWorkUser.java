@@ -1,13 +1,11 @@
 package net.momirealms.craftengine.core.plugin.network;
 
 import io.netty.channel.Channel;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import net.momirealms.craftengine.core.plugin.Plugin;
 import net.momirealms.craftengine.core.util.Key;
 import org.jetbrains.annotations.ApiStatus;
 
-import java.util.List;
-import java.util.Map;
-
 public interface NetWorkUser {
     boolean isOnline();
 
@@ -35,7 +33,7 @@ public interface NetWorkUser {
 
     Object platformPlayer();
 
-    Map<Integer, List<Integer>> furnitureView();
+    Int2ObjectMap<int[]> furnitureView();
 
     boolean clientModEnabled();
 
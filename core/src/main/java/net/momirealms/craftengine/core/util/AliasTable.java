@@ -0,0 +1,85 @@
+package net.momirealms.craftengine.core.util;
+
+import java.util.Random;
+
+/**
+ * Walker's alias table, picks an index with a probability proportional to its weight in constant time.
+ * <p>
+ * The table is built with integer arithmetic, so the distribution is exactly the same as the one of a linear scan
+ * over {@code random.nextInt(totalWeight)}.
+ */
+public final class AliasTable {
+    private final int[] alias;
+    private final long[] threshold;
+    private final int totalWeight;
+
+    private AliasTable(int[] alias, long[] threshold, int totalWeight) {
+        this.alias = alias;
+        this.threshold = threshold;
+        this.totalWeight = totalWeight;
+    }
+
+    /**
+     * @param weights the weights, all of them must be positive and their sum must fit in an int
+     */
+    public static AliasTable of(int[] weights) {
+        int size = weights.length;
+        if (size == 0) {
+            throw new IllegalArgumentException("weights can not be empty");
+        }
+        long total = 0;
+        for (int weight : weights) {
+            if (weight <= 0) {
+                throw new IllegalArgumentException("weights must be positive");
+            }
+            total += weight;
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("total weight is too large: " + total);
+        }
+        // every bucket holds exactly 'total' after scaling the weights by the bucket count
+        long[] scaled = new long[size];
+        int[] alias = new int[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallSize = 0;
+        int largeSize = 0;
+        for (int i = 0; i < size; i++) {
+            scaled[i] = (long) weights[i] * size;
+            alias[i] = i;
+            if (scaled[i] < total) {
+                small[smallSize++] = i;
+            } else {
+                large[largeSize++] = i;
+            }
+        }
+        while (smallSize > 0 && largeSize > 0) {
+            int less = small[--smallSize];
+            int more = large[--largeSize];
+            alias[less] = more;
+            scaled[more] -= total - scaled[less];
+            if (scaled[more] < total) {
+                small[smallSize++] = more;
+            } else {
+                large[largeSize++] = more;
+            }
+        }
+        // whatever is left is full
+        while (largeSize > 0) {
+            scaled[large[--largeSize]] = total;
+        }
+        while (smallSize > 0) {
+            scaled[small[--smallSize]] = total;
+        }
+        return new AliasTable(alias, scaled, (int) total);
+    }
+
+    public int size() {
+        return this.alias.length;
+    }
+
+    public int sample(Random random) {
+        int bucket = random.nextInt(this.alias.length);
+        return random.nextInt(this.totalWeight) < this.threshold[bucket] ? bucket : this.alias[bucket];
+    }
+}
@@ -0,0 +1,120 @@
+package net.momirealms.craftengine.core.util;
+
+/**
+ * A set of unicode code points backed by one bitmap per plane.
+ * <p>
+ * The bitmap of a plane is only allocated once a code point of that plane is added, so a set of custom glyphs,
+ * which usually live in the private use areas, costs 8 KiB for the BMP plus 8 KiB for each supplementary plane in use.
+ * Strings are scanned char by char without decoding them into a code point array first.
+ */
+public final class CodepointSet {
+    private static final int PLANE_COUNT = Character.MAX_CODE_POINT + 1 >>> 16;
+    private static final int PLANE_WORDS = 1 << 16 >>> 6;
+
+    private final long[][] planes = new long[PLANE_COUNT][];
+    private int size;
+    // nothing below this code point is in the set, which rules out most text with a single comparison per char
+    private int lowest = Integer.MAX_VALUE;
+
+    public void add(int codepoint) {
+        long[] plane = this.planes[codepoint >>> 16];
+        if (plane == null) {
+            plane = new long[PLANE_WORDS];
+            this.planes[codepoint >>> 16] = plane;
+        }
+        int index = codepoint & 0xFFFF;
+        long bit = 1L << index;
+        if ((plane[index >>> 6] & bit) == 0) {
+            plane[index >>> 6] |= bit;
+            this.size++;
+            this.lowest = Math.min(this.lowest, codepoint);
+        }
+    }
+
+    public void addAll(Iterable<Integer> codepoints) {
+        for (int codepoint : codepoints) {
+            this.add(codepoint);
+        }
+    }
+
+    public boolean contains(int codepoint) {
+        if (codepoint < this.lowest || codepoint > Character.MAX_CODE_POINT) {
+            return false;
+        }
+        long[] plane = this.planes[codepoint >>> 16];
+        if (plane == null) {
+            return false;
+        }
+        int index = codepoint & 0xFFFF;
+        return (plane[index >>> 6] & 1L << index) != 0;
+    }
+
+    public void clear() {
+        for (int i = 0; i < PLANE_COUNT; i++) {
+            this.planes[i] = null;
+        }
+        this.size = 0;
+        this.lowest = Integer.MAX_VALUE;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the char index of the first code point in the set, or -1 if there is none
+     */
+    public int indexOfAny(CharSequence string) {
+        if (this.size == 0) {
+            return -1;
+        }
+        int lowest = this.lowest;
+        for (int i = 0, length = string.length(); i < length; i++) {
+            char c = string.charAt(i);
+            // a high surrogate may still start a supplementary code point in the set
+            if (c < lowest && !Character.isHighSurrogate(c)) {
+                continue;
+            }
+            int codepoint = c;
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+                codepoint = Character.toCodePoint(c, string.charAt(i + 1));
+                if (this.contains(codepoint)) {
+                    return i;
+                }
+                i++;
+            } else if (this.contains(codepoint)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Replaces every code point in the set with the given char.
+     *
+     * @return the same instance if there was nothing to replace
+     */
+    public String replaceAll(String string, char replacement) {
+        int start = this.indexOfAny(string);
+        if (start < 0) {
+            return string;
+        }
+        int length = string.length();
+        StringBuilder builder = new StringBuilder(length);
+        builder.append(string, 0, start);
+        for (int i = start; i < length; ) {
+            int codepoint = string.codePointAt(i);
+            if (this.contains(codepoint)) {
+                builder.append(replacement);
+            } else {
+                builder.appendCodePoint(codepoint);
+            }
+            i += Character.charCount(codepoint);
+        }
+        return builder.toString();
+    }
+}
@@ -1,8 +1,31 @@
 package net.momirealms.craftengine.core.util;
 
-public record Key(String namespace, String value) {
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * A namespaced id.
+ * <p>
+ * The hash is computed once, with the same value as the hash of {@link #toString()}, and the string is cached.
+ * Keys parsed with {@link #of(String)} are interned by the string they were parsed from,
+ * so parsing the same id again doesn't allocate and the resulting keys are usually equal by identity.
+ */
+public final class Key {
     public static final String DEFAULT_NAMESPACE = "craftengine";
+    // once the pool is full, new keys are no longer interned, so ids sent by players can't grow it forever
+    private static final int MAX_INTERNED_KEYS = 1 << 16;
+    private static final Map<String, Key> INTERNED_KEYS = new ConcurrentHashMap<>(1024);
+
+    private final String namespace;
+    private final String value;
+    private final int hash;
+    private String string;
+
+    public Key(String namespace, String value) {
+        this.namespace = namespace;
+        this.value = value;
+        this.hash = hash(namespace, value);
+    }
 
     public static Key withDefaultNamespace(String value) {
         return new Key(DEFAULT_NAMESPACE, value);
@@ -21,30 +44,61 @@ public record Key(String namespace, String value) {
     }
 
     public static Key of(String namespacedId) {
-        return of(decompose(namespacedId, "minecraft"));
+        Key key = INTERNED_KEYS.get(namespacedId);
+        if (key != null) {
+            return key;
+        }
+        key = of(decompose(namespacedId, "minecraft"));
+        if (INTERNED_KEYS.size() < MAX_INTERNED_KEYS) {
+            Key previous = INTERNED_KEYS.putIfAbsent(namespacedId, key);
+            if (previous != null) {
+                return previous;
+            }
+        }
+        return key;
     }
 
     public static Key from(String namespacedId) {
-        return of(decompose(namespacedId, "minecraft"));
+        return of(namespacedId);
+    }
+
+    public String namespace() {
+        return this.namespace;
+    }
+
+    public String value() {
+        return this.value;
     }
 
     @Override
     public int hashCode() {
-        return toString().hashCode();
+        return this.hash;
     }
 
     @Override
     public boolean equals(Object obj) {
-        if (obj == null) {
-            return false;
-        }
+        if (this == obj) return true;
         if (!(obj instanceof Key key)) return false;
-        return this.namespace.equals(key.namespace()) && this.value.equals(key.value());
+        return this.hash == key.hash && this.namespace.equals(key.namespace) && this.value.equals(key.value);
     }
 
     @Override
     public String toString() {
-        return namespace + ":" + value;
+        String string = this.string;
+        if (string == null) {
+            string = this.namespace + ":" + this.value;
+            this.string = string;
+        }
+        return string;
+    }
+
+    // same as (namespace + ":" + value).hashCode()
+    private static int hash(String namespace, String value) {
+        int hash = namespace.hashCode() * 31 + ':';
+        for (int i = 0, length = value.length(); i < length; i++) {
+            hash *= 31;
+        }
+        return hash + value.hashCode();
     }
 
     private static String[] decompose(String id, String namespace) {
@@ -58,4 +112,4 @@ public record Key(String namespace, String value) {
         }
         return strings;
     }
-}
\ No newline at end of file
+}
@@ -469,6 +469,65 @@ public class ReflectionUtils {
         }
     }
 
+    public static MethodHandle unreflectSetter(Field field) throws IllegalAccessException {
+        try {
+            return LOOKUP.unreflectSetter(field);
+        } catch (IllegalAccessException e) {
+            field.setAccessible(true);
+            return LOOKUP.unreflectSetter(field);
+        }
+    }
+
+    public static MethodHandle unreflectConstructor(Constructor<?> constructor) throws IllegalAccessException {
+        try {
+            return LOOKUP.unreflectConstructor(constructor);
+        } catch (IllegalAccessException e) {
+            constructor.setAccessible(true);
+            return LOOKUP.unreflectConstructor(constructor);
+        }
+    }
+
+    /*
+     * The handles below have their reference types erased to Object, so that callers can use invokeExact
+     * without knowing the obfuscated classes. They fail loudly since a missing handle means a broken mapping.
+     */
+
+    public static MethodHandle getterHandle(Field field) {
+        try {
+            MethodHandle handle = unreflectGetter(field);
+            return handle.asType(handle.type().erase());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Failed to create a getter for " + field, e);
+        }
+    }
+
+    public static MethodHandle setterHandle(Field field) {
+        try {
+            MethodHandle handle = unreflectSetter(field);
+            return handle.asType(handle.type().erase());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Failed to create a setter for " + field, e);
+        }
+    }
+
+    public static MethodHandle methodHandle(Method method) {
+        try {
+            MethodHandle handle = unreflectMethod(method);
+            return handle.asType(handle.type().erase());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Failed to create a handle for " + method, e);
+        }
+    }
+
+    public static MethodHandle constructorHandle(Constructor<?> constructor) {
+        try {
+            MethodHandle handle = unreflectConstructor(constructor);
+            return handle.asType(handle.type().erase());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Failed to create a handle for " + constructor, e);
+        }
+    }
+
     public static VarHandle findVarHandle(Class<?> clazz, String name, Class<?> type) {
         try {
             return MethodHandles.privateLookupIn(clazz, LOOKUP)
@@ -3,27 +3,36 @@ package net.momirealms.craftengine.core.util.context;
 import org.jetbrains.annotations.Contract;
 
 import javax.annotation.Nullable;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
+/**
+ * Parameters indexed by the {@link ContextKey#slot() slot} of their key, so a lookup is an array access.
+ */
 public class ContextHolder {
+    private static final Object[] NO_PARAMS = new Object[0];
     public static final ContextHolder EMPTY = ContextHolder.builder().build();
 
-    private final Map<ContextKey<?>, Object> params;
+    private final Object[] params;
 
-    public ContextHolder(Map<ContextKey<?>, Object> params) {
+    private ContextHolder(Object[] params) {
         this.params = params;
     }
 
+    @Nullable
+    private Object get(ContextKey<?> key) {
+        int slot = key.existingSlot();
+        return slot >= 0 && slot < this.params.length ? this.params[slot] : null;
+    }
+
     public boolean has(ContextKey<?> key) {
-        return params.containsKey(key);
+        return get(key) != null;
     }
 
     @SuppressWarnings("unchecked")
     public <T> T getOrThrow(ContextKey<T> parameter) {
-        T object = (T) this.params.get(parameter);
+        T object = (T) get(parameter);
         if (object == null) {
             throw new NoSuchElementException(parameter.id().toString());
         } else {
@@ -33,14 +42,15 @@ public class ContextHolder {
 
     @SuppressWarnings("unchecked")
     public <T> Optional<T> getOptional(ContextKey<T> parameter) {
-        return Optional.ofNullable((T) this.params.get(parameter));
+        return Optional.ofNullable((T) get(parameter));
     }
 
     @SuppressWarnings("unchecked")
     @Nullable
     @Contract("_,!null->!null; _,_->_")
     public <T> T getOrDefault(ContextKey<T> parameter, @Nullable T defaultValue) {
-        return (T) this.params.getOrDefault(parameter, defaultValue);
+        T object = (T) get(parameter);
+        return object == null ? defaultValue : object;
     }
 
     public static Builder builder() {
@@ -49,27 +59,39 @@ public class ContextHolder {
 
     public static class Builder {
 
-        private final Map<ContextKey<?>, Object> params = new HashMap<>();
+        private Object[] params = NO_PARAMS;
 
         public Builder() {}
 
         public <T> Builder withParameter(ContextKey<T> parameter, T value) {
-            this.params.put(parameter, value);
+            int slot = parameter.slot();
+            if (slot >= this.params.length) {
+                this.params = Arrays.copyOf(this.params, Math.max(slot + 1, this.params.length * 2));
+            }
+            this.params[slot] = value;
             return this;
         }
 
         public <T> Builder withOptionalParameter(ContextKey<T> parameter, @Nullable T value) {
             if (value == null) {
-                this.params.remove(parameter);
-            } else {
-                this.params.put(parameter, value);
+                int slot = parameter.existingSlot();
+                if (slot >= 0 && slot < this.params.length) {
+                    this.params[slot] = null;
+                }
+                return this;
             }
-            return this;
+            return withParameter(parameter, value);
+        }
+
+        @Nullable
+        private Object get(ContextKey<?> key) {
+            int slot = key.existingSlot();
+            return slot >= 0 && slot < this.params.length ? this.params[slot] : null;
         }
 
         @SuppressWarnings("unchecked")
         public <T> T getParameterOrThrow(ContextKey<T> parameter) {
-            T object = (T) this.params.get(parameter);
+            T object = (T) get(parameter);
             if (object == null) {
                 throw new NoSuchElementException(parameter.id().toString());
             } else {
@@ -79,11 +101,12 @@ public class ContextHolder {
 
         @SuppressWarnings("unchecked")
         public <T> Optional<T> getOptionalParameter(ContextKey<T> parameter) {
-            return Optional.ofNullable((T) this.params.get(parameter));
+            return Optional.ofNullable((T) get(parameter));
         }
 
         public ContextHolder build() {
-            return new ContextHolder(this.params);
+            // copied, so the builder can keep adding parameters without changing holders built before
+            return new ContextHolder(this.params.length == 0 ? NO_PARAMS : this.params.clone());
         }
     }
 }
@@ -3,8 +3,17 @@ package net.momirealms.craftengine.core.util.context;
 import net.momirealms.craftengine.core.util.Key;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class ContextKey<T> {
+    // keys with the same id share a slot, so a holder can store its values in an array
+    private static final Map<Key, Integer> SLOTS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_SLOT = new AtomicInteger();
+
     private final Key id;
+    private int slot = -1;
 
     public ContextKey(@NotNull Key id) {
         this.id = id;
@@ -15,6 +24,37 @@ public class ContextKey<T> {
         return id;
     }
 
+    /**
+     * @return the index of this key in the values of a {@link ContextHolder}, assigned when a value is first stored for its id
+     */
+    public int slot() {
+        int slot = this.slot;
+        if (slot < 0) {
+            slot = SLOTS.computeIfAbsent(this.id, k -> NEXT_SLOT.getAndIncrement());
+            this.slot = slot;
+        }
+        return slot;
+    }
+
+    /**
+     * Same as {@link #slot()}, but doesn't assign a slot to ids nothing was ever stored for, so looking up
+     * arbitrary ids doesn't grow the holders.
+     *
+     * @return the slot, or -1 if there is none yet
+     */
+    public int existingSlot() {
+        int slot = this.slot;
+        if (slot < 0) {
+            Integer existing = SLOTS.get(this.id);
+            if (existing == null) {
+                return -1;
+            }
+            slot = existing;
+            this.slot = slot;
+        }
+        return slot;
+    }
+
     @NotNull
     public static <T> ContextKey<T> of(@NotNull Key id) {
         return new ContextKey<>(id);
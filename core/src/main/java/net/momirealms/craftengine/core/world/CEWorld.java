@@ -2,25 +2,46 @@ package net.momirealms.craftengine.core.world;
 
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import net.momirealms.craftengine.core.block.ImmutableBlockState;
+import net.momirealms.craftengine.core.plugin.CraftEngine;
+import net.momirealms.craftengine.core.plugin.config.ConfigManager;
 import net.momirealms.craftengine.core.world.chunk.CEChunk;
+import net.momirealms.craftengine.core.world.chunk.serialization.ChunkSerializer;
 import net.momirealms.craftengine.core.world.chunk.storage.StorageAdaptor;
 import net.momirealms.craftengine.core.world.chunk.storage.WorldDataStorage;
+import net.momirealms.sparrow.nbt.CompoundTag;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public abstract class CEWorld {
     public static final String REGION_DIRECTORY = "craftengine";
+    private static final int MAX_AUTOSAVE_SCANS_PER_TICK = 1024;
     protected final World world;
     protected final Map<Long, CEChunk> loadedChunkMap;
     protected final WorldDataStorage worldDataStorage;
     protected final ReentrantReadWriteLock loadedChunkMapLock = new ReentrantReadWriteLock();
     protected final WorldHeight worldHeightAccessor;
     protected final Set<SectionPos> updatedSectionPositions = Collections.synchronizedSet(new HashSet<>());
+    // chunks read ahead of their load event, and chunks still waiting to be written to the storage
+    protected final Map<Long, PrefetchedChunk> prefetchedChunks = new ConcurrentHashMap<>();
+    // prefetched chunks in the order they were requested, which is also the order they get stale in
+    protected final Queue<PrefetchedChunk> prefetchOrder = new ConcurrentLinkedQueue<>();
+    protected final Map<Long, CompletableFuture<Void>> pendingWrites = new ConcurrentHashMap<>();
+    protected final PlayerSpatialIndex players = new PlayerSpatialIndex();
+    // the chunks that were loaded when the current autosave pass started
+    private CEChunk[] autosaveQueue = new CEChunk[0];
+    private int autosaveIndex;
+    private long lastAutosaveTime = System.currentTimeMillis();
 
     private CEChunk lastChunk;
     private long lastChunkPos;
@@ -45,6 +66,10 @@ public abstract class CEWorld {
         return world;
     }
 
+    public PlayerSpatialIndex players() {
+        return this.players;
+    }
+
     public boolean isChunkLoaded(final long chunkPos) {
         this.loadedChunkMapLock.readLock().lock();
         try {
@@ -147,6 +172,210 @@ public abstract class CEWorld {
         return worldDataStorage;
     }
 
+    /**
+     * Reads the chunk at the given position, preferring data that has already been prefetched.
+     * If a write of the same chunk is still queued, this method waits for it to finish first.
+     * <p>
+     * A prefetch that hasn't finished yet may still be queued behind many other reads, so it is cancelled and the chunk
+     * is read directly instead of waiting for the whole backlog.
+     */
+    public CEChunk readChunk(ChunkPos pos) throws IOException {
+        PrefetchedChunk prefetched = this.prefetchedChunks.remove(pos.longKey());
+        if (prefetched != null && !prefetched.future().isDone()) {
+            prefetched.future().cancel(false);
+            prefetched = null;
+        }
+        if (prefetched != null) {
+            try {
+                return prefetched.future().join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException ioException) {
+                    throw ioException;
+                }
+                throw new IOException("Failed to prefetch chunk " + pos, e.getCause());
+            }
+        }
+        CompletableFuture<Void> pendingWrite = this.pendingWrites.get(pos.longKey());
+        if (pendingWrite != null) {
+            pendingWrite.exceptionally(t -> null).join();
+        }
+        return this.readChunkFromStorage(pos);
+    }
+
+    /**
+     * Starts reading and decoding the chunk on the worker threads, so that the following
+     * {@link #readChunk(ChunkPos)} only has to pick up the result.
+     */
+    public void prefetchChunk(ChunkPos pos) {
+        long key = pos.longKey();
+        if (this.prefetchedChunks.containsKey(key) || this.isChunkLoaded(key)) {
+            return;
+        }
+        if (this.prefetchedChunks.size() >= ConfigManager.maxPrefetchedChunks()) {
+            return;
+        }
+        this.prefetchedChunks.computeIfAbsent(key, k -> {
+            CompletableFuture<Void> pendingWrite = this.pendingWrites.getOrDefault(k, CompletableFuture.completedFuture(null));
+            CompletableFuture<CEChunk> future = pendingWrite.exceptionally(t -> null).thenApplyAsync(v -> {
+                try {
+                    return this.readChunkFromStorage(pos);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, CraftEngine.instance().scheduler().async());
+            PrefetchedChunk prefetched = new PrefetchedChunk(k, future, System.currentTimeMillis());
+            this.prefetchOrder.add(prefetched);
+            return prefetched;
+        });
+    }
+
+    /**
+     * Drops prefetched chunks that have not been loaded in time, for instance because the player turned around.
+     */
+    public void discardStalePrefetchedChunks(long maxAgeMillis) {
+        long deadline = System.currentTimeMillis() - maxAgeMillis;
+        PrefetchedChunk prefetched;
+        // the queue is in creation order, so everything after the first young enough chunk is young enough as well
+        while ((prefetched = this.prefetchOrder.peek()) != null && prefetched.createdTime() < deadline) {
+            this.prefetchOrder.poll();
+            // no-op if the chunk has already been picked up
+            if (this.prefetchedChunks.remove(prefetched.key(), prefetched)) {
+                prefetched.future().cancel(false);
+            }
+        }
+    }
+
+    private CEChunk readChunkFromStorage(ChunkPos pos) throws IOException {
+        CompoundTag chunkNbt = this.worldDataStorage.readChunkTagAt(pos);
+        if (chunkNbt != null) {
+            return ChunkSerializer.deserialize(this, pos, chunkNbt);
+        } else {
+            return new CEChunk(this, pos);
+        }
+    }
+
+    public void writeChunk(CEChunk chunk) throws IOException {
+        long key = chunk.chunkPos().longKey();
+        this.prefetchedChunks.remove(key);
+        // a failed write marks the chunk dirty again before it completes
+        CompletableFuture<Void> pendingWrite = this.pendingWrites.get(key);
+        if (pendingWrite != null) {
+            pendingWrite.exceptionally(t -> null).join();
+        }
+        if (!chunk.isDirty()) return;
+        this.worldDataStorage.writeChunkTagAt(chunk.chunkPos(), ChunkSerializer.serialize(chunk));
+        chunk.setDirty(false);
+    }
+
+    /**
+     * Queues the chunk to be serialized and written on the worker threads. The chunk must no longer
+     * be modified once it has been queued. Writes of the same chunk are applied in order, and when
+     * the queue is full, the chunk is written on the calling thread instead.
+     * Chunks that haven't changed since they were read are skipped.
+     */
+    public void writeChunkAsync(CEChunk chunk) throws IOException {
+        long key = chunk.chunkPos().longKey();
+        if (!chunk.isDirty()) {
+            this.prefetchedChunks.remove(key);
+            // an autosave of this chunk may still fail, in which case the chunk has to be written after all
+            if (this.pendingWrites.containsKey(key)) {
+                this.queueWrite(chunk, chunk, true);
+            }
+            return;
+        }
+        if (this.pendingWrites.size() >= ConfigManager.maxPendingChunkWrites()) {
+            this.writeChunk(chunk);
+            return;
+        }
+        this.prefetchedChunks.remove(key);
+        // the chunk is no longer modified from here on
+        chunk.setDirty(false);
+        this.queueWrite(chunk, chunk, false);
+    }
+
+    /**
+     * @param snapshot the chunk data to write
+     * @param chunk the chunk the snapshot was taken from, marked dirty again if the write fails
+     * @param onlyIfDirty whether to skip the write if the chunk is clean once the previous writes are done
+     */
+    private void queueWrite(CEChunk snapshot, CEChunk chunk, boolean onlyIfDirty) {
+        long key = chunk.chunkPos().longKey();
+        CompletableFuture<Void> future = this.pendingWrites.compute(key, (k, previous) -> {
+            CompletableFuture<Void> after = previous == null ? CompletableFuture.completedFuture(null) : previous.exceptionally(t -> null);
+            return after.thenRunAsync(() -> {
+                if (onlyIfDirty && !chunk.isDirty()) return;
+                try {
+                    this.worldDataStorage.writeChunkTagAt(snapshot.chunkPos(), ChunkSerializer.serialize(snapshot));
+                } catch (IOException | RuntimeException e) {
+                    // so the chunk is saved again by the next autosave or when it unloads
+                    chunk.setDirty(true);
+                    throw new CompletionException(e);
+                }
+            }, CraftEngine.instance().scheduler().async());
+        });
+        future.whenComplete((v, t) -> {
+            this.pendingWrites.remove(key, future);
+            if (t != null) {
+                CraftEngine.instance().logger().warn("Failed to write chunk tag at " + chunk.chunkPos().x + " " + chunk.chunkPos().z, t);
+            }
+        });
+    }
+
+    /**
+     * Saves some of the loaded chunks that changed since they were last saved, as long as the budget allows.
+     * A new pass over the loaded chunks starts once the previous one is done and the interval has passed.
+     * <p>
+     * Each chunk is copied on the calling thread, then serialized and written on the worker threads, in order with
+     * the other writes of the same chunk. Once a pass is done, the storage is flushed.
+     */
+    public void autosave(SaveBudget budget, long intervalMillis) {
+        if (this.autosaveIndex >= this.autosaveQueue.length) {
+            long now = System.currentTimeMillis();
+            if (now - this.lastAutosaveTime < intervalMillis) return;
+            this.lastAutosaveTime = now;
+            this.loadedChunkMapLock.readLock().lock();
+            try {
+                this.autosaveQueue = this.loadedChunkMap.values().toArray(new CEChunk[0]);
+            } finally {
+                this.loadedChunkMapLock.readLock().unlock();
+            }
+            this.autosaveIndex = 0;
+        }
+        // clean chunks are cheap to skip, but there may be a lot of them
+        int maxScanned = MAX_AUTOSAVE_SCANS_PER_TICK;
+        while (this.autosaveIndex < this.autosaveQueue.length && budget.hasRemaining() && maxScanned-- > 0) {
+            if (this.pendingWrites.size() >= ConfigManager.maxPendingChunkWrites()) return;
+            CEChunk chunk = this.autosaveQueue[this.autosaveIndex];
+            this.autosaveQueue[this.autosaveIndex++] = null;
+            if (!chunk.isLoaded() || !chunk.isDirty()) continue;
+            budget.consume(chunk.estimatedSize());
+            // changes made after this point mark the chunk again, and so does a failed write
+            chunk.setDirty(false);
+            this.queueWrite(chunk.copy(), chunk, false);
+        }
+        if (this.autosaveIndex >= this.autosaveQueue.length && this.autosaveQueue.length != 0) {
+            this.autosaveQueue = new CEChunk[0];
+            this.autosaveIndex = 0;
+            CraftEngine.instance().scheduler().async().execute(() -> {
+                this.flushPendingWrites();
+                try {
+                    this.worldDataStorage.flush();
+                } catch (IOException e) {
+                    CraftEngine.instance().logger().warn("Failed to flush chunk storage of " + this.world.name(), e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Blocks until every queued chunk write has been handed to the storage.
+     */
+    public void flushPendingWrites() {
+        for (CompletableFuture<Void> future : this.pendingWrites.values()) {
+            future.exceptionally(t -> null).join();
+        }
+    }
+
     public void sectionLightUpdated(SectionPos pos) {
         this.updatedSectionPositions.add(pos);
     }
@@ -156,4 +385,7 @@ public abstract class CEWorld {
     }
 
     public abstract void tick();
+
+    protected record PrefetchedChunk(long key, CompletableFuture<CEChunk> future, long createdTime) {
+    }
 }
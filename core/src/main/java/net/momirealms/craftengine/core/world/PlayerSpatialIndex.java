@@ -0,0 +1,124 @@
+package net.momirealms.craftengine.core.world;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.momirealms.craftengine.core.entity.player.Player;
+import net.momirealms.craftengine.core.util.MCUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * The players of a world bucketed by the chunk they are in, so that broadcasts only visit the players around a position
+ * instead of every player of the world.
+ * <p>
+ * Positions are reported by the player tick, so a query sees them as they were at the start of the tick.
+ */
+public class PlayerSpatialIndex {
+    private final Map<Player, Entry> entries = new Reference2ObjectOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<List<Entry>> byChunk = new Long2ObjectOpenHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void update(Player player, double x, double y, double z) {
+        long chunkPos = ChunkPos.asLong(MCUtils.fastFloor(x) >> 4, MCUtils.fastFloor(z) >> 4);
+        this.lock.readLock().lock();
+        try {
+            Entry entry = this.entries.get(player);
+            if (entry != null && entry.chunkPos == chunkPos) {
+                entry.setPosition(x, y, z);
+                return;
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        this.lock.writeLock().lock();
+        try {
+            Entry entry = this.entries.get(player);
+            if (entry == null) {
+                entry = new Entry(player);
+                this.entries.put(player, entry);
+            } else {
+                this.removeFromChunk(entry);
+            }
+            entry.chunkPos = chunkPos;
+            entry.setPosition(x, y, z);
+            this.byChunk.computeIfAbsent(chunkPos, k -> new ArrayList<>(2)).add(entry);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Player player) {
+        this.lock.writeLock().lock();
+        try {
+            Entry entry = this.entries.remove(player);
+            if (entry != null) {
+                this.removeFromChunk(entry);
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private void removeFromChunk(Entry entry) {
+        List<Entry> players = this.byChunk.get(entry.chunkPos);
+        if (players == null) return;
+        players.remove(entry);
+        if (players.isEmpty()) {
+            this.byChunk.remove(entry.chunkPos);
+        }
+    }
+
+    /**
+     * Visits the players whose distance to the given position is less than the radius.
+     */
+    public void forEachNearby(double x, double y, double z, double radius, Consumer<Player> action) {
+        int minChunkX = MCUtils.fastFloor(x - radius) >> 4;
+        int maxChunkX = MCUtils.fastFloor(x + radius) >> 4;
+        int minChunkZ = MCUtils.fastFloor(z - radius) >> 4;
+        int maxChunkZ = MCUtils.fastFloor(z + radius) >> 4;
+        double radiusSqr = radius * radius;
+        this.lock.readLock().lock();
+        try {
+            if (this.byChunk.isEmpty()) return;
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                    List<Entry> players = this.byChunk.get(ChunkPos.asLong(chunkX, chunkZ));
+                    if (players == null) continue;
+                    for (int i = 0, size = players.size(); i < size; i++) {
+                        Entry entry = players.get(i);
+                        double dx = x - entry.x;
+                        double dy = y - entry.y;
+                        double dz = z - entry.z;
+                        if (dx * dx + dy * dy + dz * dz < radiusSqr) {
+                            action.accept(entry.player);
+                        }
+                    }
+                }
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private static class Entry {
+        private final Player player;
+        private long chunkPos;
+        private volatile double x;
+        private volatile double y;
+        private volatile double z;
+
+        private Entry(Player player) {
+            this.player = player;
+        }
+
+        private void setPosition(double x, double y, double z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+}
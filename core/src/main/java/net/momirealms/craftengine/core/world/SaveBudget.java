@@ -0,0 +1,25 @@
+package net.momirealms.craftengine.core.world;
+
+/**
+ * How many chunks and bytes may still be saved in the current tick, shared by all worlds.
+ * <p>
+ * The last chunk may exceed the byte budget, so that a chunk larger than the whole budget is still saved eventually.
+ */
+public class SaveBudget {
+    private int chunks;
+    private long bytes;
+
+    public SaveBudget(int chunks, long bytes) {
+        this.chunks = chunks;
+        this.bytes = bytes;
+    }
+
+    public boolean hasRemaining() {
+        return this.chunks > 0 && this.bytes > 0;
+    }
+
+    public void consume(long bytes) {
+        this.chunks--;
+        this.bytes -= bytes;
+    }
+}
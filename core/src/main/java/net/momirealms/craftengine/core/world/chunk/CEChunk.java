@@ -16,6 +16,8 @@ public class CEChunk {
     private final CESection[] sections;
     private final WorldHeight worldHeightAccessor;
     private final List<Vec3d> entities;
+    // set for changes that are not tracked by the sections
+    private volatile boolean dirty;
 
     public CEChunk(CEWorld world, ChunkPos chunkPos) {
         this.world = world;
@@ -114,6 +116,58 @@ public class CEChunk {
         return sections;
     }
 
+    /**
+     * @return whether the chunk differs from what was read from the storage, so it has to be written again
+     */
+    public boolean isDirty() {
+        if (this.dirty) return true;
+        for (CESection section : this.sections) {
+            if (section != null && section.isDirty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void setDirty(boolean dirty) {
+        this.dirty = dirty;
+        if (!dirty) {
+            for (CESection section : this.sections) {
+                if (section != null) {
+                    section.setDirty(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the block data, so that it can be serialized on another thread while this chunk keeps changing.
+     */
+    public CEChunk copy() {
+        CESection[] copiedSections = new CESection[this.sections.length];
+        for (int i = 0; i < this.sections.length; i++) {
+            CESection section = this.sections[i];
+            if (section != null && !section.statesContainer().isEmpty()) {
+                copiedSections[i] = new CESection(section.sectionY(), section.statesContainer().copy());
+            }
+        }
+        return new CEChunk(this.world, this.chunkPos, copiedSections, new ArrayList<>(this.entities));
+    }
+
+    /**
+     * @return a rough estimate of the size of the serialized chunk in bytes, before compression
+     */
+    public long estimatedSize() {
+        long size = 0;
+        for (CESection section : this.sections) {
+            if (section == null || section.statesContainer().isEmpty()) continue;
+            PalettedContainer.Data<ImmutableBlockState> data = section.statesContainer().data();
+            // the packed data plus an nbt entry for each distinct state
+            size += data.storage().getData().length * 8L + data.palette().getSize() * 64L;
+        }
+        return size;
+    }
+
     public boolean isLoaded() {
         return loaded;
     }
@@ -10,6 +10,8 @@ public class CESection {
 
     private final int sectionY;
     private final PalettedContainer<ImmutableBlockState> statesContainer;
+    // whether a block changed since the section was loaded or last saved
+    private volatile boolean dirty;
 
     public CESection(int sectionY, PalettedContainer<ImmutableBlockState> statesContainer) {
         this.sectionY = sectionY;
@@ -21,11 +23,13 @@ public class CESection {
     }
 
     public void setBlockState(int x, int y, int z, ImmutableBlockState state) {
-        statesContainer.set((y << 4 | z) << 4 | x, state);
+        setBlockState((y << 4 | z) << 4 | x, state);
     }
 
     public void setBlockState(int index, ImmutableBlockState state) {
-        statesContainer.set(index, state);
+        if (statesContainer.swapUnsafe(index, state) != state) {
+            this.dirty = true;
+        }
     }
 
     public ImmutableBlockState getBlockState(BlockPos pos) {
@@ -47,4 +51,12 @@ public class CESection {
     public int sectionY() {
         return sectionY;
     }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void setDirty(boolean dirty) {
+        this.dirty = dirty;
+    }
 }
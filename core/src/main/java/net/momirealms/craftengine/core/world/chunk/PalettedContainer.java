@@ -137,6 +137,10 @@ public class PalettedContainer<T> implements PaletteResizeListener<T>, ReadableC
         return this.swap(this.paletteProvider.computeIndex(x, y, z), value);
     }
 
+    public T swapUnsafe(int index, T value) {
+        return this.swap(index, value);
+    }
+
     public T swap(int x, int y, int z, T value) {
         this.lock();
         T previous;
@@ -0,0 +1,135 @@
+package net.momirealms.craftengine.core.world.chunk.packet;
+
+import io.netty.buffer.Unpooled;
+import net.momirealms.craftengine.core.util.FriendlyByteBuf;
+
+/**
+ * Remaps the block states in the section data of a chunk packet without decoding the containers.
+ * <p>
+ * Only the headers of the block state containers are parsed. Palette entries are remapped as they are read,
+ * and the packed data is only unpacked when the section uses the global palette, in which case the bit width
+ * stays the same since remapped ids are still within the registry. Everything else, including the biome
+ * containers, is copied verbatim.
+ * <p>
+ * The output buffer is only created once the first state actually changes, so chunks without any custom
+ * block are returned as is.
+ */
+public final class ChunkBufferRemapper {
+    private static final int MAX_BLOCK_PALETTE_BITS = 8;
+    private static final int MAX_BIOME_PALETTE_BITS = 3;
+
+    private final byte[] buffer;
+    private final FriendlyByteBuf in;
+    private final int[] mappings;
+    private FriendlyByteBuf out;
+    // everything before this index of the input is already in the output
+    private int copied;
+
+    private ChunkBufferRemapper(byte[] buffer, int[] mappings) {
+        this.buffer = buffer;
+        this.in = new FriendlyByteBuf(Unpooled.wrappedBuffer(buffer));
+        this.mappings = mappings;
+    }
+
+    public static byte[] remap(byte[] buffer, int sectionCount, int[] mappings) {
+        return new ChunkBufferRemapper(buffer, mappings).remap(sectionCount);
+    }
+
+    private byte[] remap(int sectionCount) {
+        try {
+            for (int i = 0; i < sectionCount && this.in.isReadable(); i++) {
+                // non-empty block count
+                this.in.skipBytes(2);
+                this.remapBlockStates();
+                this.skipContainer(MAX_BIOME_PALETTE_BITS);
+            }
+        } catch (IndexOutOfBoundsException ignored) {
+            // malformed or truncated section, leave the rest of the buffer untouched
+        }
+        if (this.out == null) {
+            return this.buffer;
+        }
+        this.copyUpTo(this.buffer.length);
+        byte[] result = new byte[this.out.writerIndex()];
+        this.out.getBytes(0, result);
+        return result;
+    }
+
+    private void remapBlockStates() {
+        int bits = this.in.readUnsignedByte();
+        if (bits == 0) {
+            this.remapPaletteEntry();
+        } else if (bits <= MAX_BLOCK_PALETTE_BITS) {
+            int size = this.in.readVarInt();
+            for (int i = 0; i < size; i++) {
+                this.remapPaletteEntry();
+            }
+        } else {
+            this.remapGlobalStates(bits);
+            return;
+        }
+        this.skipLongArray();
+    }
+
+    private void remapPaletteEntry() {
+        int start = this.in.readerIndex();
+        int state = this.in.readVarInt();
+        int newState = this.mappings[state];
+        if (newState != state) {
+            this.copyUpTo(start);
+            this.out.writeVarInt(newState);
+            this.copied = this.in.readerIndex();
+        }
+    }
+
+    private void remapGlobalStates(int bits) {
+        int length = this.in.readVarInt();
+        int valuesPerLong = 64 / bits;
+        long mask = (1L << bits) - 1L;
+        for (int i = 0; i < length; i++) {
+            int start = this.in.readerIndex();
+            long value = this.in.readLong();
+            long newValue = value;
+            for (int j = 0; j < valuesPerLong; j++) {
+                int offset = j * bits;
+                int state = (int) (value >>> offset & mask);
+                int newState = this.mappings[state];
+                if (newState != state) {
+                    newValue = newValue & ~(mask << offset) | ((long) newState & mask) << offset;
+                }
+            }
+            if (newValue != value) {
+                this.copyUpTo(start);
+                this.out.writeLong(newValue);
+                this.copied = this.in.readerIndex();
+            }
+        }
+    }
+
+    private void skipContainer(int maxPaletteBits) {
+        int bits = this.in.readUnsignedByte();
+        if (bits == 0) {
+            this.in.readVarInt();
+        } else if (bits <= maxPaletteBits) {
+            int size = this.in.readVarInt();
+            for (int i = 0; i < size; i++) {
+                this.in.readVarInt();
+            }
+        }
+        this.skipLongArray();
+    }
+
+    private void skipLongArray() {
+        int length = this.in.readVarInt();
+        this.in.skipBytes(length * 8);
+    }
+
+    private void copyUpTo(int index) {
+        if (this.out == null) {
+            // leave some room for palette entries that grow
+            this.out = new FriendlyByteBuf(Unpooled.buffer(this.buffer.length + 64));
+        }
+        this.out.writeBytes(this.buffer, this.copied, index - this.copied);
+        this.copied = index;
+    }
+}
@@ -1,5 +1,8 @@
 package net.momirealms.craftengine.core.world.chunk.serialization;
 
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.momirealms.craftengine.core.block.ImmutableBlockState;
 import net.momirealms.craftengine.core.world.CEWorld;
 import net.momirealms.craftengine.core.world.ChunkPos;
 import net.momirealms.craftengine.core.world.chunk.CEChunk;
@@ -9,36 +12,54 @@ import net.momirealms.sparrow.nbt.ListTag;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 public class ChunkSerializer {
+    /**
+     * Chunks without a version are in the legacy format, where each section stores its palette as nbt.
+     * Since version 1, the block states used by a chunk are stored once in a table shared by all its sections.
+     */
+    public static final int FORMAT_VERSION = 1;
 
     @Nullable
     public static CompoundTag serialize(@NotNull CEChunk chunk) {
+        Reference2IntMap<ImmutableBlockState> stateTable = new Reference2IntOpenHashMap<>();
+        stateTable.defaultReturnValue(-1);
+        List<ImmutableBlockState> stateList = new ArrayList<>();
         ListTag sections = new ListTag();
         CESection[] ceSections = chunk.sections();
         for (CESection ceSection : ceSections) {
             if (ceSection != null) {
-                CompoundTag sectionNbt = SectionSerializer.serialize(ceSection);
+                CompoundTag sectionNbt = SectionSerializer.serialize(ceSection, stateTable, stateList);
                 if (sectionNbt != null) {
                     sections.add(sectionNbt);
                 }
             }
         }
         if (sections.isEmpty()) return null;
+        ListTag states = new ListTag();
+        for (ImmutableBlockState state : stateList) {
+            states.add(state.getNbtToSave());
+        }
         CompoundTag chunkNbt = new CompoundTag();
+        chunkNbt.putInt("version", FORMAT_VERSION);
+        chunkNbt.put("states", states);
         chunkNbt.put("sections", sections);
         chunkNbt.put("entities", new ListTag());
         return chunkNbt;
     }
 
     @NotNull
-    public static CEChunk deserialize(@NotNull CEWorld world, @NotNull ChunkPos pos, @NotNull CompoundTag chunkNbt) {
+    public static CEChunk deserialize(@NotNull CEWorld world, @NotNull ChunkPos pos, @NotNull CompoundTag chunkNbt) throws IOException {
         ListTag sections = chunkNbt.getList("sections");
         CESection[] sectionArray = new CESection[world.worldHeight().getSectionsCount()];
+        boolean legacy = chunkNbt.getInt("version") < FORMAT_VERSION;
+        ImmutableBlockState[] stateTable = legacy ? null : deserializeStates(chunkNbt.getList("states"));
         for (int i = 0, size = sections.size(); i < size; ++i) {
             CompoundTag sectionTag = sections.getCompound(i);
-            CESection ceSection = SectionSerializer.deserialize(sectionTag);
+            CESection ceSection = legacy ? SectionSerializer.deserializeLegacy(sectionTag) : SectionSerializer.deserialize(sectionTag, stateTable);
             if (ceSection != null) {
                 int sectionIndex = world.worldHeight().getSectionIndexFromSectionY(ceSection.sectionY());
                 if (sectionIndex >= 0 && sectionIndex < sectionArray.length) {
@@ -47,6 +68,19 @@ public class ChunkSerializer {
             }
         }
         ListTag entities = chunkNbt.getList("entities");
-        return new CEChunk(world, pos, sectionArray, List.of());
+        CEChunk chunk = new CEChunk(world, pos, sectionArray, List.of());
+        if (legacy) {
+            // rewrite it in the current format even if nothing changes
+            chunk.setDirty(true);
+        }
+        return chunk;
+    }
+
+    private static ImmutableBlockState[] deserializeStates(ListTag states) {
+        ImmutableBlockState[] stateTable = new ImmutableBlockState[states.size()];
+        for (int i = 0; i < stateTable.length; i++) {
+            stateTable[i] = SectionSerializer.deserializeState(states.getCompound(i));
+        }
+        return stateTable;
     }
 }
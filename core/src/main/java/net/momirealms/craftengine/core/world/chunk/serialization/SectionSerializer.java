@@ -1,5 +1,6 @@
 package net.momirealms.craftengine.core.world.chunk.serialization;
 
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
 import net.momirealms.craftengine.core.block.CustomBlock;
 import net.momirealms.craftengine.core.block.EmptyBlock;
 import net.momirealms.craftengine.core.block.ImmutableBlockState;
@@ -8,17 +9,18 @@ import net.momirealms.craftengine.core.registry.BuiltInRegistries;
 import net.momirealms.craftengine.core.registry.Holder;
 import net.momirealms.craftengine.core.registry.WritableRegistry;
 import net.momirealms.craftengine.core.util.Key;
+import net.momirealms.craftengine.core.util.MCUtils;
 import net.momirealms.craftengine.core.util.ResourceKey;
-import net.momirealms.craftengine.core.world.chunk.CESection;
-import net.momirealms.craftengine.core.world.chunk.PalettedContainer;
-import net.momirealms.craftengine.core.world.chunk.ReadableContainer;
+import net.momirealms.craftengine.core.world.chunk.*;
 import net.momirealms.sparrow.nbt.CompoundTag;
+import net.momirealms.sparrow.nbt.IntArrayTag;
 import net.momirealms.sparrow.nbt.ListTag;
 import net.momirealms.sparrow.nbt.LongArrayTag;
 import net.momirealms.sparrow.nbt.Tag;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -26,28 +28,136 @@ import java.util.stream.LongStream;
 
 public class SectionSerializer {
 
+    /**
+     * Writes a section using the compact format of {@link ChunkSerializer#FORMAT_VERSION}.
+     * <p>
+     * The palette only holds indices into the state table of the chunk. If every palette entry is still in use,
+     * the packed storage of the container is written as it is. Otherwise, the palette is compacted and the storage
+     * repacked, so states that are no longer used don't stay in the chunk forever.
+     */
     @Nullable
-    public static CompoundTag serialize(@NotNull CESection section) {
-        ReadableContainer.Serialized<ImmutableBlockState> serialized = section.statesContainer().serialize(null, PalettedContainer.PaletteProvider.CUSTOM_BLOCK_STATE);
-        ListTag palettes = new ListTag();
-        List<ImmutableBlockState> states = serialized.paletteEntries();
+    public static CompoundTag serialize(@NotNull CESection section, @NotNull Reference2IntMap<ImmutableBlockState> stateTable, @NotNull List<ImmutableBlockState> stateList) {
+        PalettedContainer<ImmutableBlockState> container = section.statesContainer();
+        List<ImmutableBlockState> states;
+        long[] data;
+        int bits;
+        container.lock();
+        try {
+            PalettedContainer.Data<ImmutableBlockState> containerData = container.data();
+            Palette<ImmutableBlockState> containerPalette = containerData.palette();
+            PaletteStorage storage = containerData.storage();
+            int paletteSize = containerPalette.getSize();
+            boolean[] used = new boolean[paletteSize];
+            int[] usedCount = new int[1];
+            storage.forEach(index -> {
+                if (index < paletteSize && !used[index]) {
+                    used[index] = true;
+                    usedCount[0]++;
+                }
+            });
+            if (usedCount[0] == paletteSize) {
+                states = new ArrayList<>(paletteSize);
+                for (int i = 0; i < paletteSize; i++) {
+                    states.add(containerPalette.get(i));
+                }
+                // the container may still be modified after it's unlocked
+                data = storage.getData().clone();
+                bits = storage.getElementBits();
+            } else {
+                int[] remapped = new int[paletteSize];
+                states = new ArrayList<>(usedCount[0]);
+                for (int i = 0; i < paletteSize; i++) {
+                    if (used[i]) {
+                        remapped[i] = states.size();
+                        states.add(containerPalette.get(i));
+                    }
+                }
+                PalettedContainer.PaletteProvider provider = PalettedContainer.PaletteProvider.CUSTOM_BLOCK_STATE;
+                bits = provider.createDataProvider(null, MCUtils.ceilLog2(states.size())).bits();
+                if (bits == 0) {
+                    data = new long[0];
+                } else {
+                    int[] indices = new int[provider.getContainerSize()];
+                    storage.writePaletteIndices(indices);
+                    for (int i = 0; i < indices.length; i++) {
+                        indices[i] = remapped[indices[i]];
+                    }
+                    data = new PackedIntegerArray(bits, indices.length, indices).getData();
+                }
+            }
+        } finally {
+            container.unlock();
+        }
         if (states.size() == 1 && states.get(0) == EmptyBlock.INSTANCE.defaultState()) {
             return null;
         }
+        int[] palette = new int[states.size()];
+        for (int i = 0; i < palette.length; i++) {
+            ImmutableBlockState state = states.get(i);
+            int index = stateTable.getInt(state);
+            if (index == -1) {
+                index = stateList.size();
+                stateTable.put(state, index);
+                stateList.add(state);
+            }
+            palette[i] = index;
+        }
         CompoundTag sectionNbt = new CompoundTag();
         sectionNbt.putByte("y", (byte) section.sectionY());
-        CompoundTag blockStates = new CompoundTag();
-        sectionNbt.put("block_states", blockStates);
-        for (ImmutableBlockState state : states) {
-            palettes.add(state.getNbtToSave());
+        sectionNbt.putByte("bits", (byte) bits);
+        sectionNbt.put("palette", new IntArrayTag(palette));
+        if (bits != 0) {
+            sectionNbt.put("data", new LongArrayTag(data));
         }
-        blockStates.put("palette", palettes);
-        serialized.storage().ifPresent(data -> blockStates.put("data", new LongArrayTag(data.toArray())));
         return sectionNbt;
     }
 
     @Nullable
-    public static CESection deserialize(@NotNull CompoundTag sectionNbt) {
+    public static CESection deserialize(@NotNull CompoundTag sectionNbt, @NotNull ImmutableBlockState[] stateTable) throws IOException {
+        int[] palette = sectionNbt.getIntArray("palette");
+        if (palette == null || palette.length == 0) {
+            return null;
+        }
+        byte sectionY = sectionNbt.getByte("y");
+        List<ImmutableBlockState> paletteEntries = new ArrayList<>(palette.length);
+        for (int index : palette) {
+            if (index < 0 || index >= stateTable.length) {
+                throw new IOException("Section " + sectionY + " uses state " + index + " but the chunk only has " + stateTable.length + " states");
+            }
+            paletteEntries.add(stateTable[index]);
+        }
+        PalettedContainer.PaletteProvider provider = PalettedContainer.PaletteProvider.CUSTOM_BLOCK_STATE;
+        int bits = sectionNbt.getByte("bits");
+        PalettedContainer.DataProvider<ImmutableBlockState> dataProvider = provider.createDataProvider(null, bits);
+        if (bits < 0 || bits > 32 || dataProvider.bits() != bits || (bits == 0 ? palette.length != 1 : palette.length > 1L << bits)) {
+            throw new IOException("Section " + sectionY + " has " + bits + " bits per block for a palette of " + palette.length + " states");
+        }
+        PaletteStorage storage;
+        if (bits == 0) {
+            storage = new EmptyPaletteStorage(provider.getContainerSize());
+        } else {
+            long[] data = sectionNbt.getLongArray("data");
+            int elementsPerLong = 64 / bits;
+            int expectedLength = (provider.getContainerSize() + elementsPerLong - 1) / elementsPerLong;
+            if (data == null || data.length != expectedLength) {
+                throw new IOException("Section " + sectionY + " has " + (data == null ? 0 : data.length) + " longs of block data but " + expectedLength + " are expected for " + bits + " bits per block");
+            }
+            storage = new PackedIntegerArray(bits, provider.getContainerSize(), data);
+        }
+        return new CESection(sectionY, new PalettedContainer<>(null, provider, dataProvider, storage, paletteEntries));
+    }
+
+    public static ImmutableBlockState deserializeState(@NotNull CompoundTag stateNbt) {
+        Key key = Key.of(stateNbt.getString("id"));
+        Holder<CustomBlock> owner = BuiltInRegistries.BLOCK.get(key).orElseGet(() -> getOrRegisterInactiveBlock(key));
+        return owner.value().getBlockState(stateNbt.getCompound("properties"));
+    }
+
+    /**
+     * Reads a section written before the chunk format was versioned, where every section stored its own palette as nbt.
+     */
+    @Nullable
+    public static CESection deserializeLegacy(@NotNull CompoundTag sectionNbt) {
         CompoundTag blockStates = sectionNbt.getCompound("block_states");
         if (blockStates == null) {
             return null;
@@ -55,24 +165,25 @@ public class SectionSerializer {
         ListTag palettes = blockStates.getList("palette");
         List<ImmutableBlockState> paletteEntries = new ArrayList<>(palettes.size());
         for (Tag tag : palettes) {
-            CompoundTag palette = (CompoundTag) tag;
-            String id = palette.getString("id");
-            CompoundTag data = palette.getCompound("properties");
-            Key key = Key.of(id);
-            Holder<CustomBlock> owner = BuiltInRegistries.BLOCK.get(key).orElseGet(() -> {
+            paletteEntries.add(deserializeState((CompoundTag) tag));
+        }
+        long[] data = blockStates.getLongArray("data");
+        ReadableContainer.Serialized<ImmutableBlockState> serialized = new ReadableContainer.Serialized<>(paletteEntries,
+                data == null ? Optional.empty() : Optional.of(LongStream.of(data)));
+        PalettedContainer<ImmutableBlockState> palettedContainer = PalettedContainer.read(null, PalettedContainer.PaletteProvider.CUSTOM_BLOCK_STATE, serialized);
+        return new CESection(sectionNbt.getByte("y"), palettedContainer);
+    }
+
+    // sections might be deserialized on worker threads, so the registration of unknown blocks has to be serialized
+    private static Holder.Reference<CustomBlock> getOrRegisterInactiveBlock(Key key) {
+        synchronized (BuiltInRegistries.BLOCK) {
+            return BuiltInRegistries.BLOCK.get(key).orElseGet(() -> {
                 Holder.Reference<CustomBlock> holder = ((WritableRegistry<CustomBlock>) BuiltInRegistries.BLOCK).registerForHolder(
                         new ResourceKey<>(BuiltInRegistries.BLOCK.key().location(), key));
                 InactiveCustomBlock inactiveBlock = new InactiveCustomBlock(key, holder);
                 holder.bindValue(inactiveBlock);
                 return holder;
             });
-            ImmutableBlockState state = owner.value().getBlockState(data);
-            paletteEntries.add(state);
         }
-        long[] data = blockStates.getLongArray("data");
-        ReadableContainer.Serialized<ImmutableBlockState> serialized = new ReadableContainer.Serialized<>(paletteEntries,
-                data == null ? Optional.empty() : Optional.of(LongStream.of(data)));
-        PalettedContainer<ImmutableBlockState> palettedContainer = PalettedContainer.read(null, PalettedContainer.PaletteProvider.CUSTOM_BLOCK_STATE, serialized);
-        return new CESection(sectionNbt.getByte("y"), palettedContainer);
     }
 }
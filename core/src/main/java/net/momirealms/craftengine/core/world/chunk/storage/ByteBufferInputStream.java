@@ -0,0 +1,62 @@
+package net.momirealms.craftengine.core.world.chunk.storage;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * An input stream reading from a byte buffer, which may be direct or memory-mapped.
+ * The optional release callback is invoked once when the stream is closed.
+ */
+public class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+    @Nullable
+    private Consumer<ByteBuffer> onClose;
+
+    public ByteBufferInputStream(ByteBuffer buffer, @Nullable Consumer<ByteBuffer> onClose) {
+        this.buffer = buffer;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public int read() {
+        return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        int remaining = this.buffer.remaining();
+        if (remaining == 0) {
+            return -1;
+        }
+        int toRead = Math.min(len, remaining);
+        this.buffer.get(b, off, toRead);
+        return toRead;
+    }
+
+    @Override
+    public long skip(long n) {
+        int toSkip = (int) Math.max(0, Math.min(n, this.buffer.remaining()));
+        this.buffer.position(this.buffer.position() + toSkip);
+        return toSkip;
+    }
+
+    @Override
+    public int available() {
+        return this.buffer.remaining();
+    }
+
+    @Override
+    public void close() {
+        Consumer<ByteBuffer> onClose = this.onClose;
+        if (onClose != null) {
+            this.onClose = null;
+            onClose.accept(this.buffer);
+        }
+    }
+}
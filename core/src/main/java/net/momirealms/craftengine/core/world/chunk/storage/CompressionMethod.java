@@ -1,31 +1,42 @@
 package net.momirealms.craftengine.core.world.chunk.storage;
 
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
 import it.unimi.dsi.fastutil.io.FastBufferedInputStream;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
 
 import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Locale;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.InflaterInputStream;
 
 public class CompressionMethod {
-    private static final int METHOD_COUNT = 3;
+    private static final int METHOD_COUNT = 5;
     public static final CompressionMethod[] METHODS = new CompressionMethod[METHOD_COUNT +1];
-    public static final CompressionMethod NONE = register(new CompressionMethod(1, (stream) -> stream, (stream) -> stream));
-    public static final CompressionMethod DEFLATE = register(new CompressionMethod(2, (stream) -> new FastBufferedInputStream(new InflaterInputStream(stream)), (stream) -> new BufferedOutputStream(new DeflaterOutputStream(stream))));
-    public static final CompressionMethod GZIP = register(new CompressionMethod(3, (stream) -> new FastBufferedInputStream(new GZIPInputStream(stream)), (stream) -> new BufferedOutputStream(new GZIPOutputStream(stream))));
-//    public static final CompressionMethod LZ4 = register(new CompressionMethod(4, LZ4BlockInputStream::new, LZ4BlockOutputStream::new));
+    public static final CompressionMethod NONE = register(new CompressionMethod(1, "none", (stream, dictionaries) -> stream, (stream, dictionaries) -> stream));
+    public static final CompressionMethod DEFLATE = register(new CompressionMethod(2, "deflate", (stream, dictionaries) -> new FastBufferedInputStream(new InflaterInputStream(stream)), (stream, dictionaries) -> new BufferedOutputStream(new DeflaterOutputStream(stream))));
+    public static final CompressionMethod GZIP = register(new CompressionMethod(3, "gzip", (stream, dictionaries) -> new FastBufferedInputStream(new GZIPInputStream(stream)), (stream, dictionaries) -> new BufferedOutputStream(new GZIPOutputStream(stream))));
+    // The codecs below rely on optional libraries, so they are kept in separate classes that are only loaded when used
+    public static final CompressionMethod LZ4 = register(new CompressionMethod(4, "lz4", (stream, dictionaries) -> Lz4Codec.wrap(stream), (stream, dictionaries) -> Lz4Codec.wrap(stream)));
+    public static final CompressionMethod ZSTD = register(new CompressionMethod(5, "zstd", (stream, dictionaries) -> ZstdCodec.wrap(stream, dictionaries), (stream, dictionaries) -> ZstdCodec.wrap(stream, dictionaries)));
 
     private final int id;
+    private final String name;
     private final StreamWrapper<InputStream> inputWrapper;
     private final StreamWrapper<OutputStream> outputWrapper;
 
-    private CompressionMethod(int id, StreamWrapper<InputStream> inputStreamWrapper, StreamWrapper<OutputStream> outputStreamWrapper) {
+    private CompressionMethod(int id, String name, StreamWrapper<InputStream> inputStreamWrapper, StreamWrapper<OutputStream> outputStreamWrapper) {
         this.id = id;
+        this.name = name;
         this.inputWrapper = inputStreamWrapper;
         this.outputWrapper = outputStreamWrapper;
     }
@@ -41,6 +52,17 @@ public class CompressionMethod {
         return METHODS[id];
     }
 
+    @Nullable
+    public static CompressionMethod fromName(String name) {
+        String lowerCase = name.toLowerCase(Locale.ENGLISH);
+        for (int i = 1; i <= METHOD_COUNT; i++) {
+            if (METHODS[i].name.equals(lowerCase)) {
+                return METHODS[i];
+            }
+        }
+        return null;
+    }
+
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     public static boolean isValid(int id) {
         return id > 0 && id <= METHOD_COUNT;
@@ -50,16 +72,72 @@ public class CompressionMethod {
         return this.id;
     }
 
+    public String getName() {
+        return this.name;
+    }
+
     public OutputStream wrap(OutputStream outputStream) throws IOException {
-        return this.outputWrapper.wrap(outputStream);
+        return this.outputWrapper.wrap(outputStream, null);
+    }
+
+    public OutputStream wrap(OutputStream outputStream, @Nullable ZstdDictionaries dictionaries) throws IOException {
+        return this.outputWrapper.wrap(outputStream, dictionaries);
     }
 
     public InputStream wrap(InputStream inputStream) throws IOException {
-        return this.inputWrapper.wrap(inputStream);
+        return this.inputWrapper.wrap(inputStream, null);
+    }
+
+    public InputStream wrap(InputStream inputStream, @Nullable ZstdDictionaries dictionaries) throws IOException {
+        return this.inputWrapper.wrap(inputStream, dictionaries);
     }
 
     @FunctionalInterface
     interface StreamWrapper<O> {
-        O wrap(O object) throws IOException;
+        O wrap(O object, @Nullable ZstdDictionaries dictionaries) throws IOException;
+    }
+
+    private static final class Lz4Codec {
+
+        private static InputStream wrap(InputStream stream) {
+            return new LZ4BlockInputStream(stream);
+        }
+
+        private static OutputStream wrap(OutputStream stream) {
+            return new LZ4BlockOutputStream(stream);
+        }
+    }
+
+    private static final class ZstdCodec {
+        private static final int MAX_FRAME_HEADER_SIZE = 18;
+
+        private static InputStream wrap(InputStream stream, @Nullable ZstdDictionaries dictionaries) throws IOException {
+            if (!stream.markSupported()) {
+                stream = new BufferedInputStream(stream);
+            }
+            // peek the frame header to find out which dictionary the data was compressed with
+            stream.mark(MAX_FRAME_HEADER_SIZE);
+            byte[] header = stream.readNBytes(MAX_FRAME_HEADER_SIZE);
+            stream.reset();
+            long dictionaryId = Zstd.getDictIdFromFrame(header);
+            ZstdInputStream zstdInputStream = new ZstdInputStream(stream);
+            if (dictionaryId != 0) {
+                byte[] dictionary = dictionaries == null ? null : dictionaries.get(dictionaryId);
+                if (dictionary == null) {
+                    throw new IOException("Missing zstd dictionary " + dictionaryId);
+                }
+                zstdInputStream.setDict(dictionary);
+            }
+            return new FastBufferedInputStream(zstdInputStream);
+        }
+
+        private static OutputStream wrap(OutputStream stream, @Nullable ZstdDictionaries dictionaries) throws IOException {
+            ZstdOutputStream zstdOutputStream = new ZstdOutputStream(stream);
+            byte[] dictionary = dictionaries == null ? null : dictionaries.active();
+            if (dictionary != null) {
+                zstdOutputStream.setDict(dictionary);
+            }
+            return new BufferedOutputStream(zstdOutputStream);
+        }
     }
 }
@@ -1,6 +1,5 @@
 package net.momirealms.craftengine.core.world.chunk.storage;
 
-import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
 import net.momirealms.craftengine.core.util.ExceptionCollector;
 import net.momirealms.craftengine.core.util.FileUtils;
@@ -12,89 +11,203 @@ import org.jetbrains.annotations.Nullable;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DefaultRegionFileStorage implements WorldDataStorage {
 
     private final Path folder;
+    private final CompressionMethod compression;
+    @Nullable
+    private final ZstdDictionaries dictionaries;
+    private final RegionReadMode readMode;
 
     public static final String REGION_FILE_SUFFIX = ".mca";
     public static final String REGION_FILE_PREFIX = "r.";
 
-    public final Long2ObjectLinkedOpenHashMap<RegionFile> regionCache = new Long2ObjectLinkedOpenHashMap<>();
+    private final Map<Long, RegionFile> regionCache = new ConcurrentHashMap<>();
+    private final AtomicLong accessCounter = new AtomicLong();
+    private final int maxOpenRegionFiles;
     private final LongLinkedOpenHashSet nonExistingRegionFiles = new LongLinkedOpenHashSet();
     static final int MAX_NON_EXISTING_CACHE = 1024 * 64;
+    public static final int DEFAULT_MAX_OPEN_REGION_FILES = 256;
 
     public DefaultRegionFileStorage(Path directory) {
+        this(directory, CompressionMethod.GZIP, null);
+    }
+
+    public DefaultRegionFileStorage(Path directory, CompressionMethod compression, @Nullable ZstdDictionaries dictionaries) {
+        this(directory, compression, dictionaries, RegionReadMode.HEAP, DEFAULT_MAX_OPEN_REGION_FILES);
+    }
+
+    public DefaultRegionFileStorage(Path directory, CompressionMethod compression, @Nullable ZstdDictionaries dictionaries, RegionReadMode readMode, int maxOpenRegionFiles) {
         this.folder = directory;
+        this.compression = compression;
+        this.dictionaries = dictionaries;
+        this.readMode = readMode;
+        this.maxOpenRegionFiles = Math.max(1, maxOpenRegionFiles);
+    }
+
+    public CompressionMethod compression() {
+        return this.compression;
+    }
+
+    @Nullable
+    public ZstdDictionaries dictionaries() {
+        return this.dictionaries;
     }
 
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
-    private synchronized boolean doesRegionFilePossiblyExist(long position) {
-        if (this.nonExistingRegionFiles.contains(position)) {
-            this.nonExistingRegionFiles.addAndMoveToFirst(position);
-            return false;
+    private boolean doesRegionFilePossiblyExist(long position) {
+        synchronized (this.nonExistingRegionFiles) {
+            if (this.nonExistingRegionFiles.contains(position)) {
+                this.nonExistingRegionFiles.addAndMoveToFirst(position);
+                return false;
+            }
+            return true;
         }
-        return true;
     }
 
-    private synchronized void createRegionFile(long position) {
-        this.nonExistingRegionFiles.remove(position);
+    private void createRegionFile(long position) {
+        synchronized (this.nonExistingRegionFiles) {
+            this.nonExistingRegionFiles.remove(position);
+        }
     }
 
-    private synchronized void markNonExisting(long position) {
-        if (this.nonExistingRegionFiles.addAndMoveToFirst(position)) {
-            while (this.nonExistingRegionFiles.size() >= MAX_NON_EXISTING_CACHE) {
-                this.nonExistingRegionFiles.removeLastLong();
+    private void markNonExisting(long position) {
+        synchronized (this.nonExistingRegionFiles) {
+            if (this.nonExistingRegionFiles.addAndMoveToFirst(position)) {
+                while (this.nonExistingRegionFiles.size() >= MAX_NON_EXISTING_CACHE) {
+                    this.nonExistingRegionFiles.removeLastLong();
+                }
             }
         }
     }
 
-    public synchronized boolean doesRegionFileNotExistNoIO(ChunkPos pos) {
+    public boolean doesRegionFileNotExistNoIO(ChunkPos pos) {
         long key = ChunkPos.asLong(pos.regionX(), pos.regionZ());
         return !this.doesRegionFilePossiblyExist(key);
     }
 
-    public synchronized RegionFile getRegionFileIfLoaded(ChunkPos pos) {
-        return this.regionCache.getAndMoveToFirst(ChunkPos.asLong(pos.regionX(), pos.regionZ()));
+    public boolean chunkExists(ChunkPos pos) throws IOException {
+        RegionFile regionFile = this.getRegionFile(pos, true);
+        if (regionFile == null) {
+            return false;
+        }
+        regionFile.readLock().lock();
+        try {
+            return regionFile.hasChunk(pos);
+        } finally {
+            regionFile.readLock().unlock();
+            regionFile.release();
+        }
     }
 
-    public synchronized boolean chunkExists(ChunkPos pos) throws IOException {
-        RegionFile regionfile = getRegionFile(pos, true, false);
-        return regionfile != null && regionfile.hasChunk(pos);
+    /**
+     * Gets the region file containing the chunk, opening it if needed.
+     * <p>
+     * The returned file is retained and stays open until the caller invokes {@link RegionFile#release()}.
+     * Files are only evicted from the cache while nobody else retains them.
+     *
+     * @param pos the chunk position
+     * @param existingOnly whether to return null instead of creating the region file if it doesn't exist
+     * @return the retained region file
+     */
+    @Nullable
+    public RegionFile getRegionFile(ChunkPos pos, boolean existingOnly) throws IOException {
+        long key = ChunkPos.asLong(pos.regionX(), pos.regionZ());
+        while (true) {
+            RegionFile regionFile = this.regionCache.get(key);
+            if (regionFile == null) {
+                if (existingOnly && !this.doesRegionFilePossiblyExist(key)) {
+                    return null;
+                }
+                regionFile = this.openRegionFile(key, pos, existingOnly);
+                if (regionFile == null) {
+                    return null;
+                }
+            }
+            if (regionFile.retain()) {
+                regionFile.markAccessed(this.accessCounter.incrementAndGet());
+                return regionFile;
+            }
+            // evicted and closed by another thread, it has already been removed from the cache
+            this.regionCache.remove(key, regionFile);
+        }
     }
 
-    public synchronized RegionFile getRegionFile(ChunkPos pos, boolean existingOnly, boolean lock) throws IOException {
-        long chunkPosLongKey = ChunkPos.asLong(pos.regionX(), pos.regionZ());
-        RegionFile regionfile = this.regionCache.getAndMoveToFirst(chunkPosLongKey);
-        if (regionfile != null) {
-            if (lock) {
-                regionfile.fileLock.lock();
-            }
-            return regionfile;
-        } else {
-            if (existingOnly && !this.doesRegionFilePossiblyExist(chunkPosLongKey)) {
-                return null;
+    @Nullable
+    private RegionFile openRegionFile(long key, ChunkPos pos, boolean existingOnly) throws IOException {
+        Path path = this.folder.resolve(REGION_FILE_PREFIX + pos.regionX() + "." + pos.regionZ() + REGION_FILE_SUFFIX);
+        RegionFile regionFile;
+        try {
+            regionFile = this.regionCache.computeIfAbsent(key, k -> {
+                if (existingOnly && !Files.exists(path)) {
+                    return null;
+                }
+                try {
+                    FileUtils.createDirectoriesSafe(this.folder);
+                    return new RegionFile(path, this.folder, this.compression, this.dictionaries, this.readMode);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (regionFile == null) {
+            this.markNonExisting(key);
+            return null;
+        }
+        this.createRegionFile(key);
+        regionFile.markAccessed(this.accessCounter.incrementAndGet());
+        this.evictRegionFiles();
+        return regionFile;
+    }
+
+    // opening a region file is rare compared to accessing one, so a linear scan for the least recently used file is cheap enough.
+    // Files that are still in use by other threads are never evicted, otherwise reopening them would create a second
+    // RegionFile with its own sector bitmap on the same path, and both would allocate the same sectors.
+    private void evictRegionFiles() throws IOException {
+        while (this.regionCache.size() > this.maxOpenRegionFiles) {
+            Map.Entry<Long, RegionFile> eldest = null;
+            for (Map.Entry<Long, RegionFile> entry : this.regionCache.entrySet()) {
+                if (!entry.getValue().isUnused()) continue;
+                if (eldest == null || entry.getValue().lastAccess() < eldest.getValue().lastAccess()) {
+                    eldest = entry;
+                }
             }
-            if (this.regionCache.size() >= 256) {
-                this.regionCache.removeLast().close();
+            if (eldest == null) {
+                return;
             }
-            Path path = this.folder.resolve(REGION_FILE_PREFIX + pos.regionX() + "." + pos.regionZ() + REGION_FILE_SUFFIX);
-            if (existingOnly && !Files.exists(path)) {
-                this.markNonExisting(chunkPosLongKey);
-                return null;
-            } else {
-                this.createRegionFile(chunkPosLongKey);
+            RegionFile candidate = eldest.getValue();
+            try {
+                // closed while holding the entry, so opening the same region again waits until the file is closed
+                this.regionCache.computeIfPresent(eldest.getKey(), (k, regionFile) -> {
+                    if (regionFile != candidate) {
+                        return regionFile;
+                    }
+                    try {
+                        return regionFile.closeIfUnused() ? null : regionFile;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
             }
-            FileUtils.createDirectoriesSafe(this.folder);
-            RegionFile newRegionFile = new RegionFile(path, this.folder);
-
-            this.regionCache.putAndMoveToFirst(chunkPosLongKey, newRegionFile);
-            if (lock) {
-                newRegionFile.fileLock.lock();
+            if (this.regionCache.get(eldest.getKey()) == candidate) {
+                // retained by another thread in the meantime
+                return;
             }
-            return newRegionFile;
         }
     }
 
@@ -116,10 +229,109 @@ public class DefaultRegionFileStorage implements WorldDataStorage {
         }
     }
 
+    public List<Path> listRegionFiles() throws IOException {
+        List<Path> regionFiles = new ArrayList<>();
+        if (!Files.isDirectory(this.folder)) {
+            return regionFiles;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.folder, REGION_FILE_PREFIX + "*" + REGION_FILE_SUFFIX)) {
+            for (Path file : stream) {
+                if (getRegionFileCoordinates(file) != null) {
+                    regionFiles.add(file);
+                }
+            }
+        }
+        return regionFiles;
+    }
+
+    /**
+     * Collects the uncompressed data of stored chunks, which can be used to train a compression dictionary.
+     *
+     * @param maxBytes the maximum total size of the samples
+     * @return the samples
+     */
+    public List<byte[]> sampleChunkData(int maxBytes) throws IOException {
+        List<byte[]> samples = new ArrayList<>();
+        int totalBytes = 0;
+        for (Path file : this.listRegionFiles()) {
+            ChunkPos regionPos = Objects.requireNonNull(getRegionFileCoordinates(file));
+            RegionFile regionFile = this.getRegionFile(regionPos, true);
+            if (regionFile == null) continue;
+            regionFile.readLock().lock();
+            try {
+                for (int i = 0; i < 32 * 32; i++) {
+                    ChunkPos pos = new ChunkPos(regionPos.x + (i & 31), regionPos.z + (i >> 5));
+                    if (!regionFile.hasChunk(pos)) continue;
+                    byte[] data = readRawChunkData(regionFile, pos);
+                    if (data == null) continue;
+                    if (totalBytes + data.length > maxBytes) {
+                        return samples;
+                    }
+                    totalBytes += data.length;
+                    samples.add(data);
+                }
+            } finally {
+                regionFile.readLock().unlock();
+                regionFile.release();
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Rewrites every chunk of the region file with the compression method and dictionary currently in use.
+     * Each chunk is rewritten while holding the lock of the region file, so this is safe to run while the world is loaded.
+     *
+     * @param file the region file
+     * @return the number of rewritten chunks
+     */
+    public int recompressRegionFile(Path file) throws IOException {
+        ChunkPos regionPos = getRegionFileCoordinates(file);
+        if (regionPos == null) {
+            throw new IllegalArgumentException(file + " is not a region file");
+        }
+        RegionFile regionFile = this.getRegionFile(regionPos, true);
+        if (regionFile == null) {
+            return 0;
+        }
+        int count = 0;
+        regionFile.writeLock().lock();
+        try {
+            for (int i = 0; i < 32 * 32; i++) {
+                ChunkPos pos = new ChunkPos(regionPos.x + (i & 31), regionPos.z + (i >> 5));
+                if (!regionFile.hasChunk(pos)) continue;
+                byte[] data = readRawChunkData(regionFile, pos);
+                if (data == null) continue;
+                try (DataOutputStream dataOutputStream = regionFile.getChunkDataOutputStream(pos)) {
+                    dataOutputStream.write(data);
+                }
+                count++;
+            }
+        } finally {
+            regionFile.writeLock().unlock();
+            regionFile.release();
+        }
+        return count;
+    }
+
+    @Nullable
+    private static byte[] readRawChunkData(RegionFile regionFile, ChunkPos pos) throws IOException {
+        try (DataInputStream dataInputStream = regionFile.getChunkDataInputStream(pos)) {
+            if (dataInputStream == null) {
+                return null;
+            }
+            return dataInputStream.readAllBytes();
+        }
+    }
+
     @Override
     @Nullable
     public CompoundTag readChunkTagAt(ChunkPos pos) throws IOException {
-        RegionFile regionFile = this.getRegionFile(pos, false, true);
+        RegionFile regionFile = this.getRegionFile(pos, true);
+        if (regionFile == null) {
+            return null;
+        }
+        regionFile.readLock().lock();
         try {
             DataInputStream dataInputStream = regionFile.getChunkDataInputStream(pos);
             CompoundTag tag;
@@ -139,13 +351,18 @@ public class DefaultRegionFileStorage implements WorldDataStorage {
             dataInputStream.close();
             return tag;
         } finally {
-            regionFile.fileLock.unlock();
+            regionFile.readLock().unlock();
+            regionFile.release();
         }
     }
 
     @Override
     public void writeChunkTagAt(ChunkPos pos, @Nullable CompoundTag nbt) throws IOException {
-        RegionFile regionFile = this.getRegionFile(pos, nbt == null, true);
+        RegionFile regionFile = this.getRegionFile(pos, nbt == null);
+        if (regionFile == null) {
+            return;
+        }
+        regionFile.writeLock().lock();
         try {
             if (nbt == null) {
                 regionFile.clear(pos);
@@ -166,23 +383,30 @@ public class DefaultRegionFileStorage implements WorldDataStorage {
                 dataOutputStream.close();
             }
         } finally {
-            regionFile.fileLock.unlock();
+            regionFile.writeLock().unlock();
+            regionFile.release();
         }
     }
 
     @Override
-    public synchronized void flush() throws IOException {
+    public void flush() throws IOException {
         for (RegionFile regionFile : this.regionCache.values()) {
-            regionFile.flush();
+            if (!regionFile.retain()) continue;
+            try {
+                regionFile.flush();
+            } finally {
+                regionFile.release();
+            }
         }
     }
 
     @Override
-    public synchronized void close() throws IOException {
+    public void close() throws IOException {
         ExceptionCollector<IOException> collector = new ExceptionCollector<>();
-        for (RegionFile regionfile : this.regionCache.values()) {
+        for (Map.Entry<Long, RegionFile> entry : this.regionCache.entrySet()) {
+            if (!this.regionCache.remove(entry.getKey(), entry.getValue())) continue;
             try {
-                regionfile.close();
+                entry.getValue().release();
             } catch (IOException ioexception) {
                 collector.add(ioexception);
             }
@@ -1,13 +1,26 @@
 package net.momirealms.craftengine.core.world.chunk.storage;
 
+import net.momirealms.craftengine.core.plugin.CraftEngine;
+import net.momirealms.craftengine.core.plugin.config.ConfigManager;
 import net.momirealms.craftengine.core.world.CEWorld;
 import net.momirealms.craftengine.core.world.World;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 public class DefaultStorageAdaptor implements StorageAdaptor {
 
     @Override
     public @NotNull WorldDataStorage adapt(@NotNull World world) {
-        return new DefaultRegionFileStorage(world.directory().resolve(CEWorld.REGION_DIRECTORY));
+        Path folder = world.directory().resolve(CEWorld.REGION_DIRECTORY);
+        ZstdDictionaries dictionaries = null;
+        try {
+            dictionaries = new ZstdDictionaries(folder);
+        } catch (IOException e) {
+            CraftEngine.instance().logger().severe("Failed to load zstd dictionaries for world " + world.name(), e);
+        }
+        return new DefaultRegionFileStorage(folder, ConfigManager.compressionMethod(world.name()), dictionaries,
+                ConfigManager.regionReadMode(), ConfigManager.maxOpenRegionFiles());
     }
 }
@@ -0,0 +1,70 @@
+package net.momirealms.craftengine.core.world.chunk.storage;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of direct buffers whose capacities are power-of-two multiples of the region sector size.
+ * <p>
+ * Requests larger than the biggest bucket are served with unpooled buffers, which only happens
+ * for chunks that are close to the size limit of a region file.
+ */
+public class DirectBufferPool {
+    private static final int BUCKETS = 9;
+    private final Queue<ByteBuffer>[] buckets;
+    private final AtomicInteger[] sizes;
+    private final int maxBuffersPerBucket;
+
+    @SuppressWarnings("unchecked")
+    public DirectBufferPool(int maxBuffersPerBucket) {
+        this.maxBuffersPerBucket = maxBuffersPerBucket;
+        this.buckets = new Queue[BUCKETS];
+        this.sizes = new AtomicInteger[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            this.buckets[i] = new ConcurrentLinkedQueue<>();
+            this.sizes[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Borrows a buffer whose limit is set to the requested size
+     *
+     * @param size the size in bytes
+     * @return the buffer
+     */
+    public ByteBuffer acquire(int size) {
+        int bucket = bucketIndex(size);
+        if (bucket >= BUCKETS) {
+            return ByteBuffer.allocateDirect(size);
+        }
+        ByteBuffer buffer = this.buckets[bucket].poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(RegionFile.SECTOR_BYTES << bucket);
+        } else {
+            this.sizes[bucket].decrementAndGet();
+        }
+        buffer.clear().limit(size);
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        int bucket = bucketIndex(capacity);
+        // only buffers created by this pool go back into it
+        if (bucket >= BUCKETS || RegionFile.SECTOR_BYTES << bucket != capacity) {
+            return;
+        }
+        if (this.sizes[bucket].incrementAndGet() > this.maxBuffersPerBucket) {
+            this.sizes[bucket].decrementAndGet();
+            return;
+        }
+        this.buckets[bucket].offer(buffer);
+    }
+
+    private static int bucketIndex(int size) {
+        int sectors = Math.max(1, (size + RegionFile.SECTOR_BYTES - 1) / RegionFile.SECTOR_BYTES);
+        return 32 - Integer.numberOfLeadingZeros(sectors - 1);
+    }
+}
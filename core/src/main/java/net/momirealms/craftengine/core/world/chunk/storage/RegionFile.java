@@ -9,13 +9,17 @@ import java.io.*;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.time.Instant;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class RegionFile implements AutoCloseable {
     private static final PluginLogger LOGGER = CraftEngine.instance().logger();
@@ -31,26 +35,43 @@ public class RegionFile implements AutoCloseable {
     public static final String EXTERNAL_FILE_PREFIX = "c.";
 
     private static final ByteBuffer PADDING_BUFFER = ByteBuffer.allocateDirect(1);
+    private static final DirectBufferPool BUFFER_POOL = new DirectBufferPool(Runtime.getRuntime().availableProcessors());
+    // region files are mapped in fixed segments that are never remapped, see readSectors
+    private static final int MAPPED_SEGMENT_BYTES = 64 * SECTOR_BYTES;
+    private static final MappedByteBuffer[] NO_MAPPED_SEGMENTS = new MappedByteBuffer[0];
 
     private final FileChannel fileChannel;
     private final Path directory;
     private final CompressionMethod compression;
+    @Nullable
+    private final ZstdDictionaries dictionaries;
+    private final RegionReadMode readMode;
+    private volatile MappedByteBuffer[] mappedSegments = NO_MAPPED_SEGMENTS;
     private final ByteBuffer header;
     private final IntBuffer sectorInfo;
     private final IntBuffer timestamps;
     private final RegionBitmap usedSectors;
-    public final ReentrantLock fileLock = new ReentrantLock(true);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // the storage holding this file in its cache owns the initial reference
+    private final AtomicInteger referenceCount = new AtomicInteger(1);
+    private volatile long lastAccess;
     public final Path regionFile;
 
     public RegionFile(Path fileChannel, Path directory) throws IOException {
-        this(fileChannel, directory, CompressionMethod.GZIP);
+        this(fileChannel, directory, CompressionMethod.GZIP, null);
+    }
+
+    public RegionFile(Path path, Path directory, CompressionMethod compressionMethod, @Nullable ZstdDictionaries dictionaries) throws IOException {
+        this(path, directory, compressionMethod, dictionaries, RegionReadMode.HEAP);
     }
 
-    public RegionFile(Path path, Path directory, CompressionMethod compressionMethod) throws IOException {
+    public RegionFile(Path path, Path directory, CompressionMethod compressionMethod, @Nullable ZstdDictionaries dictionaries, RegionReadMode readMode) throws IOException {
+        this.readMode = readMode;
         this.header = ByteBuffer.allocateDirect(8192);
         this.regionFile = path;
         this.usedSectors = new RegionBitmap();
         this.compression = compressionMethod;
+        this.dictionaries = dictionaries;
         if (!Files.isDirectory(directory)) {
             throw new IllegalArgumentException("Expected directory, got " + directory.toAbsolutePath());
         }
@@ -100,7 +121,7 @@ public class RegionFile implements AutoCloseable {
      * @throws IOException If an I/O error occurs while reading from the file.
      */
     @Nullable
-    public synchronized DataInputStream getChunkDataInputStream(ChunkPos pos) throws IOException {
+    public DataInputStream getChunkDataInputStream(ChunkPos pos) throws IOException {
         int sectorInfo = this.getSectorInfo(pos);
         // If no sector information is found (sectorInfo == 0), return null (indicating chunk doesn't exist).
         if (sectorInfo == INFO_NOT_PRESENT) {
@@ -112,13 +133,12 @@ public class RegionFile implements AutoCloseable {
 
         // Calculate the total size of the chunk data in bytes (sectorSize * 4096 bytes per sector).
         int totalSize = sectorSize * SECTOR_BYTES;
-        ByteBuffer bytebuffer = ByteBuffer.allocate(totalSize);
-        this.fileChannel.read(bytebuffer, (long) sectorOffset * SECTOR_BYTES);
-        ((Buffer) bytebuffer).flip();
+        ByteBuffer bytebuffer = this.readSectors((long) sectorOffset * SECTOR_BYTES, totalSize);
 
         // If the buffer has less than 5 bytes, the chunk's header is corrupted (or truncated).
         if (bytebuffer.remaining() < 5) {
             LOGGER.severe(String.format("Chunk %s header is truncated: expected %s but read %s", pos, totalSize, bytebuffer.remaining()));
+            this.releaseSectors(bytebuffer);
             return null;
         }
 
@@ -127,12 +147,14 @@ public class RegionFile implements AutoCloseable {
         byte type = bytebuffer.get();
         if (size == 0) {
             LOGGER.warn(String.format("Chunk %s is allocated, but stream is missing", pos));
+            this.releaseSectors(bytebuffer);
             return null;
         }
 
         // Calculate the actual data size
         int actualSize = size - 1;
         if (RegionFile.isExternalStreamChunk(type)) {
+            this.releaseSectors(bytebuffer);
             // If the chunk has both internal and external streams, log a warning.
             if (actualSize != 0) {
                 LOGGER.warn("Chunk has both internal and external streams");
@@ -142,14 +164,102 @@ public class RegionFile implements AutoCloseable {
         } else if (actualSize > bytebuffer.remaining()) {
             // If the declared size of the chunk is greater than the remaining bytes in the buffer, the stream is truncated.
             LOGGER.severe(String.format("Chunk %s stream is truncated: expected %s but read %s", pos, actualSize, bytebuffer.remaining()));
+            this.releaseSectors(bytebuffer);
             return null;
         } else if (actualSize < 0) {
             // If the declared chunk size is negative, log an error.
             LOGGER.severe(String.format("Declared size %s of chunk %s is negative", size, pos));
+            this.releaseSectors(bytebuffer);
             return null;
-        } else {
+        } else if (this.readMode == RegionReadMode.HEAP) {
             // Otherwise, create and return a standard input stream for the chunk data.
             return this.createChunkInputStream(pos, type, RegionFile.createInputStream(bytebuffer, actualSize));
+        } else {
+            ((Buffer) bytebuffer).limit(bytebuffer.position() + actualSize);
+            // The pooled buffer goes back to the pool once the caller closes the stream
+            ByteBufferInputStream stream = new ByteBufferInputStream(bytebuffer, this.readMode == RegionReadMode.POOLED ? BUFFER_POOL::release : null);
+            try {
+                DataInputStream dataInputStream = this.createChunkInputStream(pos, type, stream);
+                if (dataInputStream == null) {
+                    stream.close();
+                }
+                return dataInputStream;
+            } catch (Throwable t) {
+                stream.close();
+                throw t;
+            }
+        }
+    }
+
+    private ByteBuffer readSectors(long position, int length) throws IOException {
+        switch (this.readMode) {
+            case MMAP -> {
+                int segment = (int) (position / MAPPED_SEGMENT_BYTES);
+                int offset = (int) (position - (long) segment * MAPPED_SEGMENT_BYTES);
+                if (offset + length <= MAPPED_SEGMENT_BYTES) {
+                    MappedByteBuffer mapping = this.getMappedSegment(segment);
+                    if (mapping != null) {
+                        return mapping.slice(offset, length);
+                    }
+                }
+                // crosses a segment boundary, or lies in the last segment that the file doesn't fill yet
+                ByteBuffer buffer = ByteBuffer.allocate(length);
+                this.fileChannel.read(buffer, position);
+                ((Buffer) buffer).flip();
+                return buffer;
+            }
+            case POOLED -> {
+                ByteBuffer buffer = BUFFER_POOL.acquire(length);
+                this.fileChannel.read(buffer, position);
+                ((Buffer) buffer).flip();
+                return buffer;
+            }
+            default -> {
+                ByteBuffer buffer = ByteBuffer.allocate(length);
+                this.fileChannel.read(buffer, position);
+                ((Buffer) buffer).flip();
+                return buffer;
+            }
+        }
+    }
+
+    /**
+     * Maps a segment of the file once the file covers it entirely. The file only grows, so a segment stays valid
+     * and is mapped at most once, instead of remapping the whole file every time it grows.
+     * <p>
+     * Java can't unmap a file explicitly, so the mappings are only released once they are garbage collected
+     * after the file is closed. Until then, the file may not be deleted or truncated on Windows.
+     */
+    @Nullable
+    private MappedByteBuffer getMappedSegment(int segment) throws IOException {
+        MappedByteBuffer[] segments = this.mappedSegments;
+        if (segment < segments.length && segments[segment] != null) {
+            return segments[segment];
+        }
+        synchronized (this) {
+            segments = this.mappedSegments;
+            if (segment < segments.length && segments[segment] != null) {
+                return segments[segment];
+            }
+            long start = (long) segment * MAPPED_SEGMENT_BYTES;
+            if (start + MAPPED_SEGMENT_BYTES > this.fileChannel.size()) {
+                return null;
+            }
+            MappedByteBuffer mapping = this.fileChannel.map(FileChannel.MapMode.READ_ONLY, start, MAPPED_SEGMENT_BYTES);
+            if (segment >= segments.length) {
+                segments = Arrays.copyOf(segments, segment + 1);
+            } else {
+                segments = segments.clone();
+            }
+            segments[segment] = mapping;
+            this.mappedSegments = segments;
+            return mapping;
+        }
+    }
+
+    private void releaseSectors(ByteBuffer buffer) {
+        if (this.readMode == RegionReadMode.POOLED) {
+            BUFFER_POOL.release(buffer);
         }
     }
 
@@ -172,7 +282,7 @@ public class RegionFile implements AutoCloseable {
             LOGGER.severe(String.format("Chunk %s has invalid chunk stream version %s", pos, flags));
             return null;
         } else {
-            return new DataInputStream(compressionMethod.wrap(stream));
+            return new DataInputStream(compressionMethod.wrap(stream, this.dictionaries));
         }
     }
 
@@ -214,7 +324,7 @@ public class RegionFile implements AutoCloseable {
      * @param pos The position of the chunk within the region file.
      * @return True if the chunk exists and is valid, false otherwise.
      */
-    public synchronized boolean doesChunkExist(ChunkPos pos) {
+    public boolean doesChunkExist(ChunkPos pos) {
         int sectorInfo = this.getSectorInfo(pos);
         if (sectorInfo == INFO_NOT_PRESENT) {
             return false;
@@ -248,7 +358,7 @@ public class RegionFile implements AutoCloseable {
     }
 
     public DataOutputStream getChunkDataOutputStream(ChunkPos pos) throws IOException {
-        return new DataOutputStream(this.compression.wrap(new ChunkBuffer(pos)));
+        return new DataOutputStream(this.compression.wrap(new ChunkBuffer(pos), this.dictionaries));
     }
 
     public void flush() throws IOException {
@@ -355,22 +465,88 @@ public class RegionFile implements AutoCloseable {
         return pos.regionLocalX() + pos.regionLocalZ() * 32;
     }
 
+    /**
+     * Chunks can be read concurrently while holding the read lock.
+     * Writing or clearing chunks requires the write lock.
+     */
+    public Lock readLock() {
+        return this.lock.readLock();
+    }
+
+    public Lock writeLock() {
+        return this.lock.writeLock();
+    }
+
+    /**
+     * Acquires a reference to this file, which keeps it open until {@link #release()} is called.
+     *
+     * @return false if the file has already been closed
+     */
+    public boolean retain() {
+        while (true) {
+            int count = this.referenceCount.get();
+            if (count <= 0) {
+                return false;
+            }
+            if (this.referenceCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a reference to this file, closing it once the last reference is gone
+     */
+    public void release() throws IOException {
+        if (this.referenceCount.decrementAndGet() == 0) {
+            this.close();
+        }
+    }
+
+    /**
+     * @return whether the only reference left is the one of the cache that opened this file
+     */
+    public boolean isUnused() {
+        return this.referenceCount.get() == 1;
+    }
+
+    /**
+     * Closes this file if the only reference left is the one of the cache that opened this file.
+     * Once this returns true, {@link #retain()} fails, so no other thread can start using the file.
+     *
+     * @return whether the file has been closed
+     */
+    public boolean closeIfUnused() throws IOException {
+        if (!this.referenceCount.compareAndSet(1, 0)) {
+            return false;
+        }
+        this.close();
+        return true;
+    }
+
+    public long lastAccess() {
+        return this.lastAccess;
+    }
+
+    public void markAccessed(long accessTime) {
+        this.lastAccess = accessTime;
+    }
+
     public void close() throws IOException {
-        this.fileLock.lock();
-        synchronized (this) {
+        this.lock.writeLock().lock();
+        try {
             try {
+                this.padToFullSector();
+            } finally {
                 try {
-                    this.padToFullSector();
+                    this.fileChannel.force(true);
                 } finally {
-                    try {
-                        this.fileChannel.force(true);
-                    } finally {
-                        this.fileChannel.close();
-                    }
+                    this.mappedSegments = NO_MAPPED_SEGMENTS;
+                    this.fileChannel.close();
                 }
-            } finally {
-                this.fileLock.unlock();
             }
+        } finally {
+            this.lock.writeLock().unlock();
         }
     }
 
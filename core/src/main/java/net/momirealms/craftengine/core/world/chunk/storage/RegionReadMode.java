@@ -0,0 +1,33 @@
+package net.momirealms.craftengine.core.world.chunk.storage;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+
+/**
+ * Controls how the sectors of a chunk are read from a region file before being decompressed.
+ */
+public enum RegionReadMode {
+    /**
+     * Reads every chunk into a newly allocated heap buffer
+     */
+    HEAP,
+    /**
+     * Reads chunks into direct buffers that are borrowed from a shared pool and returned once the chunk is decoded
+     */
+    POOLED,
+    /**
+     * Memory-maps the region file in fixed segments and decompresses straight from the mapping.
+     * The mappings are only released by the garbage collector after the file is closed.
+     */
+    MMAP;
+
+    @Nullable
+    public static RegionReadMode fromName(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
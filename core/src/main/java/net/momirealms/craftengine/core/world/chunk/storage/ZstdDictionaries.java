@@ -0,0 +1,97 @@
+package net.momirealms.craftengine.core.world.chunk.storage;
+
+import com.github.luben.zstd.ZstdDictTrainer;
+import net.momirealms.craftengine.core.plugin.CraftEngine;
+import net.momirealms.craftengine.core.util.FileUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the zstd dictionaries of a world.
+ * <p>
+ * Dictionaries are never removed, since chunks compressed with an older dictionary still need it to be read.
+ * New chunks are always compressed with the most recently trained one.
+ */
+public class ZstdDictionaries {
+    public static final String DICTIONARY_DIRECTORY = "dictionaries";
+    public static final String DICTIONARY_FILE_SUFFIX = ".zdict";
+    private static final int DICTIONARY_MAGIC = 0xEC30A437;
+
+    private final Path folder;
+    private final Map<Long, byte[]> byId = new ConcurrentHashMap<>();
+    private volatile byte[] active;
+    private int count;
+
+    public ZstdDictionaries(Path regionFolder) throws IOException {
+        this.folder = regionFolder.resolve(DICTIONARY_DIRECTORY);
+        if (!Files.isDirectory(this.folder)) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.folder, "*" + DICTIONARY_FILE_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        // file names are zero-padded sequence numbers, the last one is the active dictionary
+        files.sort(null);
+        for (Path file : files) {
+            // a broken dictionary only makes the chunks compressed with it unreadable, not the whole world
+            try {
+                byte[] dictionary = Files.readAllBytes(file);
+                this.byId.put(getDictionaryId(dictionary), dictionary);
+                this.active = dictionary;
+            } catch (IOException e) {
+                CraftEngine.instance().logger().warn("Failed to read zstd dictionary " + file, e);
+            }
+        }
+        this.count = files.size();
+    }
+
+    @Nullable
+    public byte[] get(long id) {
+        return this.byId.get(id);
+    }
+
+    @Nullable
+    public byte[] active() {
+        return this.active;
+    }
+
+    public synchronized void add(byte[] dictionary) throws IOException {
+        FileUtils.createDirectoriesSafe(this.folder);
+        Files.write(this.folder.resolve(String.format("%04d", ++this.count) + DICTIONARY_FILE_SUFFIX), dictionary);
+        this.byId.put(getDictionaryId(dictionary), dictionary);
+        this.active = dictionary;
+    }
+
+    public static byte[] train(List<byte[]> samples, int dictionarySize) {
+        int totalSize = 0;
+        for (byte[] sample : samples) {
+            totalSize += sample.length;
+        }
+        ZstdDictTrainer trainer = new ZstdDictTrainer(totalSize, dictionarySize);
+        for (byte[] sample : samples) {
+            trainer.addSample(sample);
+        }
+        return trainer.trainSamples();
+    }
+
+    private static long getDictionaryId(byte[] dictionary) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(dictionary).order(ByteOrder.LITTLE_ENDIAN);
+        if (dictionary.length < 8 || buffer.getInt(0) != DICTIONARY_MAGIC) {
+            throw new IOException("Not a zstd dictionary");
+        }
+        return Integer.toUnsignedLong(buffer.getInt(4));
+    }
+}